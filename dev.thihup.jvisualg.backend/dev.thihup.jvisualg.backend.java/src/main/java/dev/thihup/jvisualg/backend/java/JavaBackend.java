@@ -1,11 +1,22 @@
 package dev.thihup.jvisualg.backend.java;
 
+import dev.thihup.jvisualg.frontend.BooleanEvaluation;
 import dev.thihup.jvisualg.frontend.node.Node;
 
 import java.util.stream.Collectors;
 
 public class JavaBackend {
-    static String javaOutput(Node node) {
+    private final BooleanEvaluation booleanEvaluation;
+
+    public JavaBackend(BooleanEvaluation booleanEvaluation) {
+        this.booleanEvaluation = booleanEvaluation;
+    }
+
+    public JavaBackend() {
+        this(BooleanEvaluation.SHORT_CIRCUIT);
+    }
+
+    String javaOutput(Node node) {
         return switch (node) {
             case null -> "// to be implemented (null?)";
             case Node.AlgoritimoNode(
@@ -21,10 +32,10 @@ public class JavaBackend {
 
             case Node.CompundNode(
                     var nodes, _
-            ) -> nodes.stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t"));
+            ) -> nodes.stream().map(this::javaOutput).collect(Collectors.joining("\n\t"));
 
             case Node.VariableDeclarationNode(Node.IdNode name, Node.ArrayTypeNode type, _, _) ->
-                    "%s%s %s = new %s%s;".formatted(javaOutput(type.type()), "[]".repeat(type.sizes().nodes().size()), name.id(), javaOutput(type.type()), type.sizes().nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("][", "[", "]")));
+                    "%s%s %s = new %s%s;".formatted(javaOutput(type.type()), "[]".repeat(type.sizes().nodes().size()), name.id(), javaOutput(type.type()), type.sizes().nodes().stream().map(this::javaOutput).collect(Collectors.joining("][", "[", "]")));
 
             case Node.VariableDeclarationNode(Node.IdNode name, Node type, _,  _) -> "%s %s;".formatted(javaOutput(type), name.id());
 
@@ -58,7 +69,7 @@ public class JavaBackend {
                         for (%s = %s; %s <= %s; %s += %s) {
                             %s
                         }
-                        """.formatted(javaOutput(identifier), javaOutput(startValue), javaOutput(identifier), javaOutput(endValue), javaOutput(identifier), javaOutput(step), commands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining()));
+                        """.formatted(javaOutput(identifier), javaOutput(startValue), javaOutput(identifier), javaOutput(endValue), javaOutput(identifier), javaOutput(step), commands.nodes().stream().map(this::javaOutput).collect(Collectors.joining()));
             }
 
             case Node.WhileCommandNode(Node condition, var commands, boolean atTheEnd, _) -> {
@@ -67,21 +78,21 @@ public class JavaBackend {
                             do {
                                 %s
                             } while (%s);
-                            """.formatted(commands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")), javaOutput(condition));
+                            """.formatted(commands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")), javaOutput(condition));
                 } else {
                     yield """
                             while (%s) {
                                 %s
                             }
-                            """.formatted(javaOutput(condition), commands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")));
+                            """.formatted(javaOutput(condition), commands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")));
                 }
             }
 
             case Node.WriteCommandNode(boolean newLine, var writeList, _) -> {
                 if (newLine) {
-                    yield "System.out.println(%s);".formatted(writeList.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining(" + ")));
+                    yield "System.out.println(%s);".formatted(writeList.nodes().stream().map(this::javaOutput).collect(Collectors.joining(" + ")));
                 } else {
-                    yield "System.out.print(%s);".formatted(writeList.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining(" + ")));
+                    yield "System.out.print(%s);".formatted(writeList.nodes().stream().map(this::javaOutput).collect(Collectors.joining(" + ")));
                 }
             }
 
@@ -105,7 +116,7 @@ public class JavaBackend {
                             if (%s) {
                                 %s
                             }
-                            """.formatted(javaOutput(condition), thenCommands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")));
+                            """.formatted(javaOutput(condition), thenCommands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")));
                 } else {
                     yield """
                             if (%s) {
@@ -113,7 +124,7 @@ public class JavaBackend {
                             } else {
                                 %s
                             }
-                            """.formatted(javaOutput(condition), thenCommands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")), elseCommands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")));
+                            """.formatted(javaOutput(condition), thenCommands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")), elseCommands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")));
                 }
             }
 
@@ -121,7 +132,7 @@ public class JavaBackend {
                     class %s {
                         %s
                     }
-                    """.formatted(name, variableDeclarationContexts.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")));
+                    """.formatted(name, variableDeclarationContexts.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")));
 
             case Node.IntLiteralNode(int value, _) -> String.valueOf(value);
 
@@ -134,32 +145,38 @@ public class JavaBackend {
             case Node.IdNode(String id, _) -> id;
 
             case Node.ArrayAccessNode(Node.IdNode id, var indexes, _) ->
-                    "%s[%s-1]".formatted(javaOutput(id), indexes.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("][")));
+                    "%s[%s-1]".formatted(javaOutput(id), indexes.nodes().stream().map(this::javaOutput).collect(Collectors.joining("][")));
 
 
             case Node.FunctionCallNode(Node.IdNode name, var args, _) ->
-                    "%s(%s)".formatted(name.id(), args.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining(", ")));
+                    "%s(%s)".formatted(name.id(), args.nodes().stream().map(this::javaOutput).collect(Collectors.joining(", ")));
 
             case Node.ProcedureCallNode(Node.IdNode name, var args, _) ->
-                    "%s(%s)".formatted(name.id(), args.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining(", ")));
+                    "%s(%s)".formatted(name.id(), args.nodes().stream().map(this::javaOutput).collect(Collectors.joining(", ")));
 
             case Node.FunctionDeclarationNode(
                     Node.IdNode name, Node type, var args, var declarations, var commands, _
             ) ->
-                    "%s %s(%s) { %s }".formatted(javaOutput(type), name, args.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining(", ")), declarations.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")) + commands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")));
+                    "%s %s(%s) { %s }".formatted(javaOutput(type), name, args.nodes().stream().map(this::javaOutput).collect(Collectors.joining(", ")), declarations.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")) + commands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")));
 
             case Node.ProcedureDeclarationNode(
                     Node.IdNode name, var args, var declarations, var commands, _
             ) ->
-                    "void %s(%s) { %s }".formatted(name, args.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining(", ")), declarations.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")) + commands.nodes().stream().map(JavaBackend::javaOutput).collect(Collectors.joining("\n\t")));
+                    "void %s(%s) { %s }".formatted(name, args.nodes().stream().map(this::javaOutput).collect(Collectors.joining(", ")), declarations.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")) + commands.nodes().stream().map(this::javaOutput).collect(Collectors.joining("\n\t")));
 
             case Node.DivNode(Node left, Node right, _, _) -> "%s / %s".formatted(javaOutput(left), javaOutput(right));
             case Node.MulNode(Node left, Node right, _) -> "%s * %s".formatted(javaOutput(left), javaOutput(right));
             case Node.AddNode(Node left, Node right, _) -> "%s + %s".formatted(javaOutput(left), javaOutput(right));
             case Node.SubNode(Node left, Node right, _) -> "%s - %s".formatted(javaOutput(left), javaOutput(right));
             case Node.ModNode(Node left, Node right, _) -> "%s %% %s".formatted(javaOutput(left), javaOutput(right));
-            case Node.AndNode(Node left, Node right, _) -> "%s && %s".formatted(javaOutput(left), javaOutput(right));
-            case Node.OrNode(Node left, Node right, _) -> "%s || %s".formatted(javaOutput(left), javaOutput(right));
+            case Node.AndNode(Node left, Node right, _) -> switch (booleanEvaluation) {
+                case SHORT_CIRCUIT -> "%s && %s".formatted(javaOutput(left), javaOutput(right));
+                case STRICT -> "%s & %s".formatted(javaOutput(left), javaOutput(right));
+            };
+            case Node.OrNode(Node left, Node right, _) -> switch (booleanEvaluation) {
+                case SHORT_CIRCUIT -> "%s || %s".formatted(javaOutput(left), javaOutput(right));
+                case STRICT -> "%s | %s".formatted(javaOutput(left), javaOutput(right));
+            };
             case Node.NotNode(Node expr, _) -> "!%s".formatted(javaOutput(expr));
             case Node.EqNode(Node left, Node right, _) -> "%s == %s".formatted(javaOutput(left), javaOutput(right));
             case Node.NeNode(Node left, Node right, _) -> "%s != %s".formatted(javaOutput(left), javaOutput(right));
@@ -0,0 +1,39 @@
+package dev.thihup.jvisualg.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+// One job per non-blank line: "<program.alg> [<input> ...]". Paths are relative to the manifest.
+// A job without inputs runs once with no input available. Lines starting with '#' are ignored.
+public record BatchManifest(List<Job> jobs) {
+
+    public record Job(Path program, List<Path> inputs) {
+        public Job {
+            inputs = List.copyOf(inputs);
+        }
+    }
+
+    public BatchManifest {
+        jobs = List.copyOf(jobs);
+    }
+
+    public static BatchManifest read(Path manifest) throws IOException {
+        Path baseDirectory = manifest.toAbsolutePath().getParent();
+        List<Job> jobs = Files.readAllLines(manifest, StandardCharsets.UTF_8).stream()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> line.split("\\s+"))
+                .map(parts -> new Job(baseDirectory.resolve(parts[0]),
+                        Arrays.stream(parts, 1, parts.length).map(baseDirectory::resolve).toList()))
+                .toList();
+        return new BatchManifest(jobs);
+    }
+
+    public int runCount() {
+        return jobs.stream().mapToInt(job -> Math.max(1, job.inputs().size())).sum();
+    }
+}
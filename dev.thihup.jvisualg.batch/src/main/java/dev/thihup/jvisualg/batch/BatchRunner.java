@@ -0,0 +1,289 @@
+package dev.thihup.jvisualg.batch;
+
+import dev.thihup.jvisualg.interpreter.IO;
+import dev.thihup.jvisualg.interpreter.InputSource;
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.LimitExceededException;
+import dev.thihup.jvisualg.interpreter.OutputEvent;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import dev.thihup.jvisualg.interpreter.RunRecording;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+public class BatchRunner {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    // Keep one core free for the JIT, GC and the thread writing the results
+    private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private Duration timeLimit = Duration.ofSeconds(10);
+    private long stepLimit = Long.MAX_VALUE;
+    @Nullable
+    private Path failureRecordings;
+    private RandomGenerator.SplittableGenerator random = new SplittableRandom();
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public void setTimeLimit(Duration timeLimit) {
+        if (timeLimit.isNegative() || timeLimit.isZero()) {
+            throw new IllegalArgumentException("Time limit must be positive: " + timeLimit);
+        }
+        this.timeLimit = timeLimit;
+    }
+
+    public void setStepLimit(long stepLimit) {
+        if (stepLimit <= 0) {
+            throw new IllegalArgumentException("Step limit must be positive: " + stepLimit);
+        }
+        this.stepLimit = stepLimit;
+    }
+
+    // Every run gets its own split of the batch seed, in manifest order, however the runs are scheduled
+    public void setSeed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    // Runs that do not complete leave a recording there, to replay them outside the batch
+    public void setFailureRecordings(@Nullable Path directory) {
+        this.failureRecordings = directory;
+    }
+
+    public void run(BatchManifest manifest, Consumer<RunResult> results) {
+        Map<Path, FutureTask<PreparedProgram>> programs = new LinkedHashMap<>();
+        for (BatchManifest.Job job : manifest.jobs()) {
+            programs.computeIfAbsent(job.program(), path -> new FutureTask<>(() ->
+                    PreparedProgram.prepare(Files.readString(path, StandardCharsets.ISO_8859_1))));
+        }
+
+        // Platform threads, because virtual threads report no CPU time and the limit and report need it
+        try (ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().factory());
+             ExecutorService executor = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("batch-", 0).factory())) {
+            for (BatchManifest.Job job : manifest.jobs()) {
+                FutureTask<PreparedProgram> program = programs.get(job.program());
+                if (job.inputs().isEmpty()) {
+                    RandomGenerator.SplittableGenerator runRandom = random.split();
+                    executor.execute(() -> results.accept(runOne(job.program(), program, null, runRandom, watchdog)));
+                }
+                for (Path input : job.inputs()) {
+                    RandomGenerator.SplittableGenerator runRandom = random.split();
+                    executor.execute(() -> results.accept(runOne(job.program(), program, input, runRandom, watchdog)));
+                }
+            }
+        }
+    }
+
+    private RunResult runOne(Path programPath, FutureTask<PreparedProgram> programTask, @Nullable Path input,
+                             RandomGenerator.SplittableGenerator random, ScheduledExecutorService watchdog) {
+        long start = System.nanoTime();
+        long cpuStart = currentThreadCpuTime();
+        // Only the first run of a program parses it, the others wait for that result
+        programTask.run();
+        PreparedProgram program;
+        try {
+            program = programTask.get();
+        } catch (ExecutionException | InterruptedException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            return result(programPath, input, RunStatus.PARSE_ERROR, cause.getMessage(), new Output(), start, cpuStart);
+        }
+
+        Output output = new Output();
+        List<String> inputLines;
+        try {
+            inputLines = input == null ? List.of() : Files.readAllLines(input, StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            return result(programPath, input, RunStatus.RUNTIME_ERROR, "Cannot read input: " + e.getMessage(), output, start, cpuStart);
+        }
+        IO io = IO.synchronous(InputSource.ofLines(inputLines), output);
+
+        Interpreter interpreter = new Interpreter(io);
+        interpreter.setStepLimit(stepLimit);
+        interpreter.setCpuTimeLimit(timeLimit);
+        interpreter.setRandomSource(random);
+        interpreter.setRecording(failureRecordings != null);
+        // The interpreter enforces the time limit itself; the watchdog only catches runs stuck outside its loop checks
+        Timeout timeout = new Timeout(interpreter);
+        ScheduledFuture<?> scheduled = watchdog.schedule(timeout, timeLimit.multipliedBy(2).toNanos(), TimeUnit.NANOSECONDS);
+        interpreter.run(program);
+        scheduled.cancel(false);
+        boolean timedOut = timeout.finish();
+        // No stop() can come after finish(), so the interrupt it may have left is cleared for good
+        Thread.interrupted();
+        if (failureRecordings != null && !(interpreter.state() instanceof InterpreterState.CompletedSuccessfully)) {
+            writeRecording(programPath, input, interpreter.recording());
+        }
+
+        return switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(LimitExceededException.Steps e) ->
+                    result(programPath, input, RunStatus.STEP_LIMIT, e.getMessage(), output, start, cpuStart);
+            case InterpreterState.CompletedExceptionally(LimitExceededException.CpuTime e) ->
+                    result(programPath, input, RunStatus.TIME_LIMIT, e.getMessage(), output, start, cpuStart);
+            case InterpreterState.CompletedExceptionally(LimitExceededException.ArrayAllocation e) ->
+                    result(programPath, input, RunStatus.MEMORY_LIMIT, e.getMessage(), output, start, cpuStart);
+            case InterpreterState.CompletedExceptionally(LimitExceededException.Output e) ->
+                    result(programPath, input, RunStatus.OUTPUT_LIMIT, e.getMessage(), output, start, cpuStart);
+            case InterpreterState.CompletedExceptionally(CancellationException _) when timedOut ->
+                    result(programPath, input, RunStatus.TIME_LIMIT, "Program exceeded the time limit of " + timeLimit + ".", output, start, cpuStart);
+            // The watchdog fired after the run left its loop but before finish()
+            case InterpreterState.ForcedStop _ when timedOut ->
+                    result(programPath, input, RunStatus.TIME_LIMIT, "Program exceeded the time limit of " + timeLimit + ".", output, start, cpuStart);
+            case InterpreterState.CompletedExceptionally(Throwable e) ->
+                    result(programPath, input, RunStatus.RUNTIME_ERROR, String.valueOf(e.getMessage()), output, start, cpuStart);
+            default -> result(programPath, input, RunStatus.COMPLETED, null, output, start, cpuStart);
+        };
+    }
+
+    // Stops the run only while it is still running, so a late firing can neither interrupt the next job
+    // on the pool thread nor turn a finished run into a stopped one
+    private static final class Timeout implements Runnable {
+        private final Interpreter interpreter;
+        private boolean finished;
+        private boolean fired;
+
+        Timeout(Interpreter interpreter) {
+            this.interpreter = interpreter;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!finished) {
+                fired = true;
+                interpreter.stop();
+            }
+        }
+
+        synchronized boolean finish() {
+            finished = true;
+            return fired;
+        }
+    }
+
+    private void writeRecording(Path program, @Nullable Path input, RunRecording recording) {
+        String name = program.getFileName() + (input == null ? "" : "-" + input.getFileName()) + ".replay";
+        try {
+            Files.createDirectories(failureRecordings);
+            try (OutputStream output = Files.newOutputStream(failureRecordings.resolve(name))) {
+                recording.write(output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static RunResult result(Path program, @Nullable Path input, RunStatus status, @Nullable String message, Output output, long start, long cpuStart) {
+        long wallNanos = System.nanoTime() - start;
+        long cpuEnd = currentThreadCpuTime();
+        long cpuNanos = cpuStart < 0 || cpuEnd < 0 ? -1 : cpuEnd - cpuStart;
+        return new RunResult(program, input, status, message, output.digest(), output.length, wallNanos, cpuNanos);
+    }
+
+    // A JVM without thread CPU time gives -1, which ends up as null in the JSON line
+    private static long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static final class Output implements Consumer<OutputEvent> {
+        private final MessageDigest digest;
+        private long length;
+
+        Output() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void accept(OutputEvent outputEvent) {
+            if (outputEvent instanceof OutputEvent.Text(String text)) {
+                digest.update(text.getBytes(StandardCharsets.UTF_8));
+                length += text.length();
+            }
+        }
+
+        String digest() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+
+    // Launch with --add-modules jdk.incubator.vector so vectorized loops run on the Vector API
+    private static final String USAGE = "Usage: BatchRunner <manifest> [--parallelism N] [--time-limit-ms N] [--step-limit N] [--output results.jsonl] [--record-failures DIR] [--seed N]";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        BatchRunner runner = new BatchRunner();
+        Path outputPath = null;
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--parallelism" -> runner.setParallelism(Integer.parseInt(value));
+                case "--time-limit-ms" -> runner.setTimeLimit(Duration.ofMillis(Long.parseLong(value)));
+                case "--step-limit" -> runner.setStepLimit(Long.parseLong(value));
+                case "--output" -> outputPath = Path.of(value);
+                case "--record-failures" -> runner.setFailureRecordings(Path.of(value));
+                case "--seed" -> runner.setSeed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        BatchManifest manifest = BatchManifest.read(Path.of(args[0]));
+        try (Writer writer = outputPath == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            runner.run(manifest, result -> {
+                synchronized (writer) {
+                    try {
+                        writer.write(result.toJson());
+                        writer.write('\n');
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dev.thihup.jvisualg.batch;
+
+import org.jspecify.annotations.Nullable;
+
+import java.nio.file.Path;
+
+public record RunResult(Path program, @Nullable Path input, RunStatus status, @Nullable String message,
+                        String outputSha256, long outputLength, long wallNanos, long cpuNanos) {
+
+    public String toJson() {
+        return "{\"program\":" + quote(program.toString())
+                + ",\"input\":" + (input == null ? "null" : quote(input.toString()))
+                + ",\"status\":" + quote(status.name())
+                + ",\"message\":" + (message == null ? "null" : quote(message))
+                + ",\"outputSha256\":" + quote(outputSha256)
+                + ",\"outputLength\":" + outputLength
+                + ",\"wallNanos\":" + wallNanos
+                + ",\"cpuNanos\":" + (cpuNanos < 0 ? "null" : cpuNanos)
+                + "}";
+    }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append("\\u%04x".formatted((int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,11 @@
+package dev.thihup.jvisualg.batch;
+
+public enum RunStatus {
+    COMPLETED,
+    PARSE_ERROR,
+    RUNTIME_ERROR,
+    TIME_LIMIT,
+    STEP_LIMIT,
+    MEMORY_LIMIT,
+    OUTPUT_LIMIT
+}
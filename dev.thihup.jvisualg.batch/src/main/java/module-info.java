@@ -0,0 +1,11 @@
+import org.jspecify.annotations.NullMarked;
+
+@NullMarked
+module dev.thihup.jvisualg.batch {
+    requires dev.thihup.jvisualg.frontend;
+    requires dev.thihup.jvisualg.interpreter;
+    requires java.management;
+    requires static org.jspecify;
+
+    exports dev.thihup.jvisualg.batch;
+}
@@ -0,0 +1,114 @@
+package dev.thihup.jvisualg.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @Test
+    void testBatch(@TempDir Path directory) throws IOException {
+        Files.writeString(directory.resolve("dobro.alg"), """
+                algoritmo "dobro"
+                var
+                   a: inteiro
+                inicio
+                   leia(a)
+                   escreval(a * 2)
+                fimalgoritmo
+                """);
+        Files.writeString(directory.resolve("loop.alg"), """
+                algoritmo "loop"
+                inicio
+                   enquanto verdadeiro faca
+                   fimenquanto
+                fimalgoritmo
+                """);
+        Files.writeString(directory.resolve("um.txt"), "1\n");
+        Files.writeString(directory.resolve("dois.txt"), "2\n");
+        Files.writeString(directory.resolve("manifest.txt"), """
+                # program inputs...
+                dobro.alg um.txt dois.txt
+                dobro.alg
+                loop.alg
+                """);
+
+        BatchManifest manifest = BatchManifest.read(directory.resolve("manifest.txt"));
+        assertEquals(4, manifest.runCount());
+
+        BatchRunner runner = new BatchRunner();
+        runner.setParallelism(2);
+        runner.setStepLimit(10_000);
+        runner.setTimeLimit(Duration.ofSeconds(30));
+        runner.setFailureRecordings(directory.resolve("replays"));
+        List<RunResult> results = new CopyOnWriteArrayList<>();
+        runner.run(manifest, results::add);
+
+        List<RunResult> sorted = results.stream()
+                .sorted(Comparator.comparing((RunResult r) -> r.program().getFileName().toString())
+                        .thenComparing(r -> r.input() == null ? "" : r.input().getFileName().toString()))
+                .toList();
+        assertEquals(List.of(RunStatus.RUNTIME_ERROR, RunStatus.COMPLETED, RunStatus.COMPLETED, RunStatus.STEP_LIMIT),
+                sorted.stream().map(RunResult::status).toList());
+        assertEquals(" 4\n".length(), sorted.get(1).outputLength());
+        assertNotEquals(sorted.get(1).outputSha256(), sorted.get(2).outputSha256());
+        assertTrue(sorted.get(3).toJson().contains("\"status\":\"STEP_LIMIT\""));
+        assertTrue(sorted.stream().allMatch(result -> result.cpuNanos() >= 0), () -> "No CPU time in " + sorted);
+        try (Stream<Path> replays = Files.list(directory.resolve("replays"))) {
+            assertEquals(List.of("dobro.alg.replay", "loop.alg.replay"), replays.map(path -> path.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void testSeed(@TempDir Path directory) throws IOException {
+        Files.writeString(directory.resolve("sorteio.alg"), """
+                algoritmo "sorteio"
+                inicio
+                   escreval(randi(1000000), rand)
+                fimalgoritmo
+                """);
+        BatchManifest manifest = new BatchManifest(List.of(
+                new BatchManifest.Job(directory.resolve("sorteio.alg"), List.of()),
+                new BatchManifest.Job(directory.resolve("sorteio.alg"), List.of())));
+
+        assertEquals(hashesWithSeed(manifest, 7), hashesWithSeed(manifest, 7));
+        assertNotEquals(hashesWithSeed(manifest, 7), hashesWithSeed(manifest, 8));
+    }
+
+    private static List<String> hashesWithSeed(BatchManifest manifest, long seed) {
+        BatchRunner runner = new BatchRunner();
+        runner.setParallelism(2);
+        runner.setSeed(seed);
+        List<RunResult> results = new CopyOnWriteArrayList<>();
+        runner.run(manifest, results::add);
+        // Both runs use the same program, so only the set of hashes is stable across schedules
+        return results.stream().map(RunResult::outputSha256).sorted().toList();
+    }
+
+    @Test
+    void testTimeLimit(@TempDir Path directory) throws IOException {
+        Files.writeString(directory.resolve("loop.alg"), """
+                algoritmo "loop"
+                inicio
+                   enquanto verdadeiro faca
+                   fimenquanto
+                fimalgoritmo
+                """);
+        BatchRunner runner = new BatchRunner();
+        runner.setTimeLimit(Duration.ofMillis(200));
+        List<RunResult> results = new CopyOnWriteArrayList<>();
+        runner.run(new BatchManifest(List.of(new BatchManifest.Job(directory.resolve("loop.alg"), List.of()))), results::add);
+
+        assertEquals(RunStatus.TIME_LIMIT, results.getFirst().status());
+    }
+}
@@ -0,0 +1,78 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Reads an inteiro and a real per iteration from a file given with the arquivo command
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ArquivoBenchmark {
+
+    @Param({"100000"})
+    public int lines;
+
+    private Path input;
+    private PreparedProgram program;
+
+    @Setup
+    public void setup() throws IOException {
+        input = Files.createTempFile("jvisualg-arquivo", ".txt");
+        SplittableRandom random = new SplittableRandom(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.ISO_8859_1)) {
+            for (int i = 0; i < lines / 2; i++) {
+                writer.write(Integer.toString(random.nextInt(-100_000, 100_000)));
+                writer.newLine();
+                writer.write(Double.toString(random.nextInt(0, 1_000_000) / 100.0));
+                writer.newLine();
+            }
+        }
+        program = Programs.prepareAndCheck("""
+                algoritmo "arquivo"
+                arquivo "%s"
+                var
+                   i, n: inteiro
+                   x: real
+                inicio
+                   para i de 1 ate %d faca
+                      leia(n, x)
+                   fimpara
+                fimalgoritmo
+                """.formatted(input.toString().replace('\\', '/'), lines / 2));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+    }
+
+    @Benchmark
+    public InterpreterState read(Blackhole blackhole) {
+        return Interpreter.run(program, Programs.scriptedIO(blackhole::consume));
+    }
+}
@@ -0,0 +1,58 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ExamplesBenchmark {
+
+    @Param({"PRIMOS.ALG", "bbsortreg.alg", "bubblrec.alg", "MEDIA_VETOR.ALG"})
+    public String program;
+
+    // Replaces the example's own problem size: the last number PRIMOS tests,
+    // MAX_ITENS in the bubble sorts, the number of grades MEDIA_VETOR reads
+    @Param({"10", "100", "400"})
+    public int size;
+
+    private PreparedProgram prepared;
+
+    @Setup
+    public void setup() throws Throwable {
+        String source = Programs.example("v30", program);
+        String resized = switch (program) {
+            case "PRIMOS.ALG" -> Programs.replace(source, "ate 800", "ate " + size);
+            case "bbsortreg.alg", "bubblrec.alg" -> Programs.replace(source, "MAX_ITENS = 10", "MAX_ITENS = " + size);
+            case "MEDIA_VETOR.ALG" -> Programs.replace(Programs.replace(Programs.replace(source,
+                    "vetor[1..4]", "vetor[1.." + size + "]"),
+                    "ATÉ 4", "ATÉ " + size),
+                    "soma/4", "soma/" + size);
+            default -> throw new IllegalArgumentException("Unknown example " + program);
+        };
+        prepared = Programs.prepareAndCheck(resized);
+    }
+
+    @Benchmark
+    public InterpreterState run(Blackhole blackhole) {
+        return Interpreter.run(prepared, Programs.scriptedIO(blackhole::consume));
+    }
+}
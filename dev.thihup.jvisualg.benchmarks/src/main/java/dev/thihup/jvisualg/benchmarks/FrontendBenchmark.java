@@ -0,0 +1,136 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.examples.ExamplesBase;
+import dev.thihup.jvisualg.examples.ProgramGenerator;
+import dev.thihup.jvisualg.frontend.ASTResult;
+import dev.thihup.jvisualg.frontend.TypeChecker;
+import dev.thihup.jvisualg.frontend.TypeCheckerResult;
+import dev.thihup.jvisualg.frontend.VisualgParser;
+import dev.thihup.jvisualg.frontend.impl.antlr.VisuAlgLexer;
+import dev.thihup.jvisualg.frontend.impl.antlr.VisuAlgParser;
+import dev.thihup.jvisualg.frontend.node.Node;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The "lines" counter is the throughput in source lines per second. For bytes per line run
+// with -prof gc and divide gc.alloc.rate.norm, which is per pass over the input, by the lines
+// in one pass: the "lines" counter divided by the primary score.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class FrontendBenchmark {
+
+    // "corpus" is every example under v25, v30 and custom; the numbers are generated programs of that many lines
+    @Param({"corpus", "1000", "10000", "100000"})
+    public String input;
+
+    private List<String> sources;
+    private List<VisuAlgParser.AlgorithmContext> parseTrees;
+    private List<Node> asts;
+    private long totalLines;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Lines {
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        if (input.equals("corpus")) {
+            List<String> corpus = new ArrayList<>();
+            for (Path path : Stream.of(ExamplesBase.examplesV25(), ExamplesBase.examplesV30(), ExamplesBase.examplesCustom()).flatMap(s -> s).toList()) {
+                corpus.add(Files.readString(path, StandardCharsets.ISO_8859_1));
+            }
+            sources = List.copyOf(corpus);
+        } else {
+            sources = List.of(ProgramGenerator.generate(ProgramGenerator.Options.ofLines(42, Integer.parseInt(input))).source());
+        }
+        totalLines = sources.stream().mapToLong(source -> source.lines().count()).sum();
+        parseTrees = sources.stream().map(FrontendBenchmark::parseTree).toList();
+        asts = sources.stream()
+                .map(VisualgParser::parse)
+                .map(ASTResult::node)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    private static VisuAlgParser.AlgorithmContext parseTree(String source) {
+        VisuAlgLexer lexer = new VisuAlgLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        VisuAlgParser parser = new VisuAlgParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        return parser.algorithm();
+    }
+
+    @Benchmark
+    public int lex(Lines counter) {
+        int tokens = 0;
+        for (String source : sources) {
+            VisuAlgLexer lexer = new VisuAlgLexer(CharStreams.fromString(source));
+            lexer.removeErrorListeners();
+            while (lexer.nextToken().getType() != Token.EOF) {
+                tokens++;
+            }
+        }
+        counter.lines += totalLines;
+        return tokens;
+    }
+
+    @Benchmark
+    public void parse(Lines counter, Blackhole blackhole) {
+        for (String source : sources) {
+            blackhole.consume(VisualgParser.parse(source));
+        }
+        counter.lines += totalLines;
+    }
+
+    @Benchmark
+    public void buildAst(Lines counter, Blackhole blackhole) {
+        for (VisuAlgParser.AlgorithmContext parseTree : parseTrees) {
+            blackhole.consume(VisualgParser.buildAst(parseTree));
+        }
+        counter.lines += totalLines;
+    }
+
+    @Benchmark
+    public void typeCheck(Lines counter, Blackhole blackhole) {
+        for (Node ast : asts) {
+            TypeCheckerResult result = TypeChecker.semanticAnalysis(ast);
+            blackhole.consume(result);
+        }
+        counter.lines += totalLines;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Each program repeats one construct in a para loop; emptyLoop is the cost of the loop alone
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class InterpreterMicroBenchmark {
+
+    @Param({"10000"})
+    public int iterations;
+
+    private PreparedProgram emptyLoop;
+    private PreparedProgram variableLookup;
+    private PreparedProgram subprogramCall;
+    private PreparedProgram arithmetic;
+    private PreparedProgram escreva;
+    private PreparedProgram leia;
+
+    @Setup
+    public void setup() {
+        emptyLoop = Programs.prepareAndCheck(loop("", ""));
+        variableLookup = Programs.prepareAndCheck(loop("", "x <- a + b + c + d"));
+        subprogramCall = Programs.prepareAndCheck(loop("""
+                funcao identidade(n: inteiro): inteiro
+                inicio
+                   retorne n
+                fimfuncao
+                """, "x <- identidade(i)"));
+        arithmetic = Programs.prepareAndCheck(loop("", "y <- (i * 3 + 7) % 11 - i / 2.0 + i ^ 2"));
+        escreva = Programs.prepareAndCheck(loop("", "escreva(i, \" \")"));
+        leia = Programs.prepareAndCheck(loop("", "leia(x, y)"));
+    }
+
+    private String loop(String declarations, String body) {
+        return """
+                algoritmo "micro"
+                var
+                   i, x, a, b, c, d: inteiro
+                   y: real
+                %s
+                inicio
+                   a <- 1
+                   b <- 2
+                   c <- 3
+                   d <- 4
+                   para i de 1 ate %d faca
+                      %s
+                   fimpara
+                fimalgoritmo
+                """.formatted(declarations, iterations, body);
+    }
+
+    @Benchmark
+    public InterpreterState emptyLoop(Blackhole blackhole) {
+        return Interpreter.run(emptyLoop, Programs.scriptedIO(blackhole::consume));
+    }
+
+    @Benchmark
+    public InterpreterState variableLookup(Blackhole blackhole) {
+        return Interpreter.run(variableLookup, Programs.scriptedIO(blackhole::consume));
+    }
+
+    @Benchmark
+    public InterpreterState subprogramCall(Blackhole blackhole) {
+        return Interpreter.run(subprogramCall, Programs.scriptedIO(blackhole::consume));
+    }
+
+    @Benchmark
+    public InterpreterState arithmetic(Blackhole blackhole) {
+        return Interpreter.run(arithmetic, Programs.scriptedIO(blackhole::consume));
+    }
+
+    @Benchmark
+    public InterpreterState escreva(Blackhole blackhole) {
+        return Interpreter.run(escreva, Programs.scriptedIO(blackhole::consume));
+    }
+
+    @Benchmark
+    public InterpreterState leia(Blackhole blackhole) {
+        return Interpreter.run(leia, Programs.scriptedIO(blackhole::consume));
+    }
+
+    @Benchmark
+    public InterpreterState leiaSynchronous(Blackhole blackhole) {
+        return Interpreter.run(leia, Programs.scriptedSynchronousIO(blackhole::consume));
+    }
+}
@@ -0,0 +1,73 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.interpreter.IO;
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Fills a vetor and a matrix with loops whose iterations are independent, with and without parallel para loops
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ParallelLoopBenchmark {
+
+    @Param({"200000"})
+    public int elements;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private PreparedProgram program;
+
+    @Setup
+    public void setup() {
+        int rows = (int) Math.sqrt(elements);
+        program = Programs.prepareAndCheck("""
+                algoritmo "paralelo"
+                var
+                   i, j: inteiro
+                   k: real
+                   v: vetor[1..%1$d] de real
+                   m: vetor[1..%2$d, 1..%2$d] de real
+                inicio
+                   k <- 2.5
+                   para i de 1 ate %1$d faca
+                      v[i] <- raizq(i) * k
+                   fimpara
+                   para i de 1 ate %2$d faca
+                      para j de 1 ate %2$d faca
+                         m[i, j] <- sen(i) * cos(j) + k
+                      fimpara
+                   fimpara
+                fimalgoritmo
+                """.formatted(elements, rows));
+    }
+
+    @Benchmark
+    public InterpreterState fill(Blackhole blackhole) {
+        IO io = Programs.scriptedIO(blackhole::consume);
+        Interpreter interpreter = new Interpreter(io);
+        interpreter.setParallelLoops(parallel);
+        // Low enough for the rows of the matrix to qualify as well
+        interpreter.setParallelLoopThreshold(100);
+        interpreter.run(program);
+        return interpreter.state();
+    }
+}
@@ -0,0 +1,92 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.examples.ExamplesBase;
+import dev.thihup.jvisualg.interpreter.IO;
+import dev.thihup.jvisualg.interpreter.InputSource;
+import dev.thihup.jvisualg.interpreter.InputValue;
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.OutputEvent;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+final class Programs {
+
+    private Programs() {
+    }
+
+    static String example(String folder, String fileName) throws Throwable {
+        Path path = ExamplesBase.examples(folder)
+                .filter(x -> x.getFileName().toString().equals(fileName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No example " + folder + "/" + fileName));
+        return Files.readString(path, StandardCharsets.ISO_8859_1);
+    }
+
+    // Every run reads the same values, so every run does the same work
+    static IO scriptedIO(Consumer<OutputEvent> output) {
+        SplittableRandom random = new SplittableRandom(42);
+        return new IO(request -> CompletableFuture.completedFuture(Optional.of(switch (request.type()) {
+            case INTEIRO -> new InputValue.InteiroValue(random.nextInt(1, 1000));
+            case REAL -> new InputValue.RealValue(random.nextInt(0, 100) / 10.0);
+            case CARACTER -> new InputValue.CaracterValue("aluno" + random.nextInt(1000));
+            case LOGICO -> new InputValue.LogicoValue(random.nextBoolean());
+        })), output);
+    }
+
+    // The same values as scriptedIO, pulled by the interpreter instead of answered through futures
+    static IO scriptedSynchronousIO(Consumer<OutputEvent> output) {
+        SplittableRandom random = new SplittableRandom(42);
+        return IO.synchronous(new InputSource() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public int nextInteiro() {
+                return random.nextInt(1, 1000);
+            }
+
+            @Override
+            public double nextReal() {
+                return random.nextInt(0, 100) / 10.0;
+            }
+
+            @Override
+            public boolean nextLogico() {
+                return random.nextBoolean();
+            }
+
+            @Override
+            public String nextCaracter() {
+                return "aluno" + random.nextInt(1000);
+            }
+        }, output);
+    }
+
+    // A program that fails halfway would be measuring the error path instead
+    static PreparedProgram prepareAndCheck(String code) {
+        PreparedProgram program = PreparedProgram.prepare(code);
+        InterpreterState state = Interpreter.run(program, scriptedIO(_ -> {
+        }));
+        if (!(state instanceof InterpreterState.CompletedSuccessfully)) {
+            throw new IllegalStateException("Benchmark program did not complete: " + state);
+        }
+        return program;
+    }
+
+    static String replace(String source, String target, String replacement) {
+        if (!source.contains(target)) {
+            throw new IllegalArgumentException("Cannot resize the program, '" + target + "' not found");
+        }
+        return source.replace(target, replacement);
+    }
+}
@@ -0,0 +1,65 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Overhead of the sampling profiler on a call-heavy loop; an interval of 0 runs without it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class SamplingBenchmark {
+
+    @Param({"100000"})
+    public int iterations;
+
+    @Param({"0", "1", "10"})
+    public int intervalMillis;
+
+    private PreparedProgram program;
+
+    @Setup
+    public void setup() {
+        program = Programs.prepareAndCheck("""
+                algoritmo "amostra"
+                var
+                   i, soma: inteiro
+                funcao quadrado(n: inteiro): inteiro
+                inicio
+                   retorne n * n
+                fimfuncao
+                inicio
+                   para i de 1 ate %d faca
+                      soma <- (soma + quadrado(i %% 100)) %% 1000
+                   fimpara
+                fimalgoritmo
+                """.formatted(iterations));
+    }
+
+    @Benchmark
+    public InterpreterState run(Blackhole blackhole) {
+        Interpreter interpreter = new Interpreter(Programs.scriptedIO(blackhole::consume));
+        interpreter.setSamplingInterval(Duration.ofMillis(intervalMillis));
+        interpreter.run(program);
+        blackhole.consume(interpreter.sampledProfile());
+        return interpreter.state();
+    }
+}
@@ -0,0 +1,84 @@
+package dev.thihup.jvisualg.benchmarks;
+
+import dev.thihup.jvisualg.interpreter.Interpreter;
+import dev.thihup.jvisualg.interpreter.InterpreterState;
+import dev.thihup.jvisualg.interpreter.LoopVectorization;
+import dev.thihup.jvisualg.interpreter.PreparedProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Statistics over a vetor of reais: the fill loop is interpreted in every mode, the passes over it
+// (sum, dot product, maximum, scaling) run as array kernels unless vectorization is OFF
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class VectorizedLoopBenchmark {
+
+    @Param({"100000"})
+    public int elements;
+
+    @Param({"20"})
+    public int passes;
+
+    @Param({"OFF", "STRICT", "RELAXED"})
+    public LoopVectorization loopVectorization;
+
+    private PreparedProgram program;
+
+    @Setup
+    public void setup() {
+        program = Programs.prepareAndCheck("""
+                algoritmo "estatistica"
+                var
+                   i, p: inteiro
+                   soma, produto, maior, media: real
+                   x, y: vetor[1..%1$d] de real
+                inicio
+                   para i de 1 ate %1$d faca
+                      x[i] <- (i * 7919) %% 1000 / 10
+                   fimpara
+                   para p de 1 ate %2$d faca
+                      para i de 1 ate %1$d faca
+                         soma <- soma + x[i]
+                      fimpara
+                      para i de 1 ate %1$d faca
+                         produto <- produto + x[i] * x[i]
+                      fimpara
+                      para i de 1 ate %1$d faca
+                         se x[i] > maior entao
+                            maior <- x[i]
+                         fimse
+                      fimpara
+                      para i de 1 ate %1$d faca
+                         y[i] <- x[i] * 0.5
+                      fimpara
+                   fimpara
+                   media <- soma / (%1$d * %2$d)
+                   escreval(media, produto, maior, y[1])
+                fimalgoritmo
+                """.formatted(elements, passes));
+    }
+
+    @Benchmark
+    public InterpreterState statistics(Blackhole blackhole) {
+        Interpreter interpreter = new Interpreter(Programs.scriptedIO(blackhole::consume));
+        interpreter.setLoopVectorization(loopVectorization);
+        interpreter.run(program);
+        return interpreter.state();
+    }
+}
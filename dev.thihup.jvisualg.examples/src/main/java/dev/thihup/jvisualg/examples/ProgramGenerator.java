@@ -0,0 +1,437 @@
+package dev.thihup.jvisualg.examples;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Emits valid VisuAlg programs of a chosen shape, together with the output they must print.
+// The generator builds a small statement tree and runs it itself to produce that output, so
+// every value is an inteiro kept between 0 and 999: no locale grouping, no overflow.
+public final class ProgramGenerator {
+
+    public record Options(long seed, int subprograms, int statementsPerSubprogram, int nestingDepth,
+                          int arraySize, int registros) {
+        public Options {
+            if (subprograms < 0 || statementsPerSubprogram < 1 || nestingDepth < 0 || arraySize < 1 || registros < 0) {
+                throw new IllegalArgumentException("Invalid generator options: " + subprograms + " subprograms, "
+                        + statementsPerSubprogram + " statements, depth " + nestingDepth + ", arrays of "
+                        + arraySize + ", " + registros + " registros");
+            }
+        }
+
+        public static Options defaults(long seed) {
+            return new Options(seed, 4, 20, 2, 10, 1);
+        }
+
+        // About the given number of source lines, in subprograms of ~70 lines each
+        public static Options ofLines(long seed, int lines) {
+            return new Options(seed, Math.max(1, lines / 70), 35, 2, 10, 2);
+        }
+
+        public Options withSubprograms(int subprograms) {
+            return new Options(seed, subprograms, statementsPerSubprogram, nestingDepth, arraySize, registros);
+        }
+
+        public Options withStatementsPerSubprogram(int statementsPerSubprogram) {
+            return new Options(seed, subprograms, statementsPerSubprogram, nestingDepth, arraySize, registros);
+        }
+
+        public Options withNestingDepth(int nestingDepth) {
+            return new Options(seed, subprograms, statementsPerSubprogram, nestingDepth, arraySize, registros);
+        }
+
+        public Options withArraySize(int arraySize) {
+            return new Options(seed, subprograms, statementsPerSubprogram, nestingDepth, arraySize, registros);
+        }
+
+        public Options withRegistros(int registros) {
+            return new Options(seed, subprograms, statementsPerSubprogram, nestingDepth, arraySize, registros);
+        }
+    }
+
+    public record GeneratedProgram(String source, String expectedOutput) {
+        public long lines() {
+            return source.lines().count();
+        }
+    }
+
+    private static final String[] SCALARS = {"x1", "x2", "x3"};
+    private static final int LOOP_COUNT = 3;
+
+    private final Options options;
+    private final SplittableRandom random;
+    private final List<Function> functions = new ArrayList<>();
+
+    private ProgramGenerator(Options options) {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed());
+    }
+
+    public static GeneratedProgram generate(Options options) {
+        return new ProgramGenerator(options).generate();
+    }
+
+    private GeneratedProgram generate() {
+        for (int i = 1; i <= options.subprograms(); i++) {
+            // Only some functions call the previous one, so call chains stay at most four long
+            Function callee = i % 4 != 1 ? functions.getLast() : null;
+            functions.add(new Function("f" + i, block(options.statementsPerSubprogram(), 0, callee)));
+        }
+
+        StringBuilder source = new StringBuilder();
+        source.append("algoritmo \"gerado\"\n");
+        if (options.registros() > 0) {
+            source.append("tipo\n");
+            for (int r = 1; r <= options.registros(); r++) {
+                source.append("   treg").append(r).append(" = registro\n");
+                source.append("      campo1: inteiro\n");
+                source.append("      campo2: inteiro\n");
+                source.append("   fimregistro\n");
+            }
+        }
+        source.append("var\n");
+        source.append("   resultado: inteiro\n");
+        for (int r = 1; r <= options.registros(); r++) {
+            source.append("   reg").append(r).append(": treg").append(r).append('\n');
+        }
+        for (Function function : functions) {
+            function.emit(source);
+        }
+
+        Env globals = new Env(null);
+        StringBuilder output = new StringBuilder();
+        source.append("inicio\n");
+        for (int r = 1; r <= options.registros(); r++) {
+            source.append("   reg").append(r).append(".campo1 <- ").append(r).append('\n');
+            source.append("   reg").append(r).append(".campo2 <- ").append(r * 2).append('\n');
+            globals.values.put("reg" + r + ".campo1", r);
+            globals.values.put("reg" + r + ".campo2", r * 2);
+        }
+        for (Function function : functions) {
+            int argument = random.nextInt(1000);
+            source.append("   resultado <- ").append(function.name).append('(').append(argument).append(")\n");
+            source.append("   escreval(resultado)\n");
+            output.append(' ').append(function.call(globals, argument)).append('\n');
+        }
+        for (int r = 1; r <= options.registros(); r++) {
+            source.append("   escreval(reg").append(r).append(".campo1)\n");
+            output.append(' ').append(globals.get("reg" + r + ".campo1")).append('\n');
+        }
+        source.append("fimalgoritmo\n");
+        return new GeneratedProgram(source.toString(), output.toString());
+    }
+
+    private List<Stmt> block(int budget, int depth, Function callee) {
+        List<Stmt> statements = new ArrayList<>();
+        while (budget > 0) {
+            int kind = random.nextInt(depth < options.nestingDepth() && budget > 2 ? 6 : 3);
+            Stmt statement = switch (kind) {
+                // Calls only happen at the top level of a function, so run time stays linear in the program size
+                case 0 -> new Assign(SCALARS[random.nextInt(SCALARS.length)], expression(depth, depth == 0 ? callee : null));
+                case 1 -> new AssignElement(leaf(depth), expression(depth, null), options.arraySize());
+                case 2 -> options.registros() > 0
+                        ? new Assign(field(), expression(depth, null))
+                        : new Assign(SCALARS[random.nextInt(SCALARS.length)], expression(depth, null));
+                case 3 -> new If(expression(depth, null), block(childBudget(budget), depth + 1, null), block(childBudget(budget), depth + 1, null));
+                case 4 -> new For("i" + (depth + 1), block(childBudget(budget), depth + 1, null));
+                default -> new While("w" + (depth + 1), block(childBudget(budget), depth + 1, null));
+            };
+            budget -= statement.size();
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private int childBudget(int budget) {
+        return 1 + random.nextInt(Math.min(4, budget - 1));
+    }
+
+    // Below the top level i1..i<depth> are readable too; outside a loop they hold 0 or what the last loop left
+    private Expr expression(int depth, Function callee) {
+        if (callee != null && random.nextInt(3) == 0) {
+            return new Call(callee, leaf(depth));
+        }
+        return switch (random.nextInt(3)) {
+            case 0 -> leaf(depth);
+            case 1 -> new Binary(leaf(depth), "+", leaf(depth));
+            default -> new Binary(leaf(depth), "*", leaf(depth));
+        };
+    }
+
+    private Expr leaf(int depth) {
+        int choice = random.nextInt(depth > 0 ? 6 : 5);
+        return switch (choice) {
+            case 0 -> new Const(random.nextInt(100));
+            case 1 -> new Var("n");
+            case 2 -> new Var(SCALARS[random.nextInt(SCALARS.length)]);
+            case 3 -> new Element(new Var(SCALARS[random.nextInt(SCALARS.length)]), options.arraySize());
+            case 4 -> options.registros() > 0 ? new Var(field()) : new Const(random.nextInt(100));
+            default -> new Var("i" + (1 + random.nextInt(depth)));
+        };
+    }
+
+    private String field() {
+        return "reg" + (1 + random.nextInt(options.registros())) + ".campo" + (1 + random.nextInt(2));
+    }
+
+    private final class Function {
+        private final String name;
+        private final List<Stmt> body;
+
+        Function(String name, List<Stmt> body) {
+            this.name = name;
+            this.body = body;
+        }
+
+        void emit(StringBuilder out) {
+            out.append("funcao ").append(name).append("(n: inteiro): inteiro\n");
+            out.append("var\n");
+            out.append("   x1, x2, x3, k: inteiro\n");
+            if (options.nestingDepth() > 0) {
+                out.append("   ");
+                for (int d = 1; d <= options.nestingDepth(); d++) {
+                    out.append(d > 1 ? ", " : "").append('i').append(d).append(", w").append(d);
+                }
+                out.append(": inteiro\n");
+            }
+            out.append("   vet: vetor[1..").append(options.arraySize()).append("] de inteiro\n");
+            out.append("inicio\n");
+            out.append("   x1 <- n\n");
+            out.append("   x2 <- (n * 7) % 1000\n");
+            out.append("   x3 <- (n + 13) % 1000\n");
+            out.append("   para k de 1 ate ").append(options.arraySize()).append(" faca\n");
+            out.append("      vet[k] <- (n + k) % 1000\n");
+            out.append("   fimpara\n");
+            for (Stmt statement : body) {
+                statement.emit(out, 1);
+            }
+            out.append("   retorne x1\n");
+            out.append("fimfuncao\n");
+        }
+
+        int call(Env globals, int argument) {
+            Env env = new Env(globals);
+            env.values.put("n", argument);
+            env.values.put("x1", argument);
+            env.values.put("x2", argument * 7 % 1000);
+            env.values.put("x3", (argument + 13) % 1000);
+            int[] array = new int[options.arraySize() + 1];
+            for (int k = 1; k <= options.arraySize(); k++) {
+                array[k] = (argument + k) % 1000;
+            }
+            env.array = array;
+            for (Stmt statement : body) {
+                statement.execute(env);
+            }
+            return env.get("x1");
+        }
+    }
+
+    private static final class Env {
+        private final Env globals;
+        private final Map<String, Integer> values = new HashMap<>();
+        private int[] array;
+
+        Env(Env globals) {
+            this.globals = globals;
+        }
+
+        int get(String name) {
+            Integer value = values.get(name);
+            if (value == null && globals != null) {
+                return globals.get(name);
+            }
+            return value == null ? 0 : value;
+        }
+
+        void set(String name, int value) {
+            if (!values.containsKey(name) && globals != null && globals.values.containsKey(name)) {
+                globals.values.put(name, value);
+            } else {
+                values.put(name, value);
+            }
+        }
+    }
+
+    private sealed interface Expr {
+        String text();
+
+        int evaluate(Env env);
+    }
+
+    private record Const(int value) implements Expr {
+        public String text() {
+            return Integer.toString(value);
+        }
+
+        public int evaluate(Env env) {
+            return value;
+        }
+    }
+
+    private record Var(String name) implements Expr {
+        public String text() {
+            return name;
+        }
+
+        public int evaluate(Env env) {
+            return env.get(name);
+        }
+    }
+
+    private record Element(Expr index, int arraySize) implements Expr {
+        public String text() {
+            return "vet[" + index.text() + " % " + arraySize + " + 1]";
+        }
+
+        public int evaluate(Env env) {
+            return env.array[index.evaluate(env) % arraySize + 1];
+        }
+    }
+
+    private record Binary(Expr left, String operator, Expr right) implements Expr {
+        public String text() {
+            return "(" + left.text() + " " + operator + " " + right.text() + ")";
+        }
+
+        public int evaluate(Env env) {
+            int l = left.evaluate(env);
+            int r = right.evaluate(env);
+            return operator.equals("+") ? l + r : l * r;
+        }
+    }
+
+    private record Call(Function callee, Expr argument) implements Expr {
+        public String text() {
+            return callee.name + "(" + argument.text() + " % 1000)";
+        }
+
+        public int evaluate(Env env) {
+            return callee.call(env.globals, argument.evaluate(env) % 1000);
+        }
+    }
+
+    private sealed interface Stmt {
+        void emit(StringBuilder out, int indent);
+
+        void execute(Env env);
+
+        int size();
+
+        static void emitBlock(List<Stmt> statements, StringBuilder out, int indent) {
+            for (Stmt statement : statements) {
+                statement.emit(out, indent);
+            }
+        }
+
+        static void executeBlock(List<Stmt> statements, Env env) {
+            for (Stmt statement : statements) {
+                statement.execute(env);
+            }
+        }
+
+        static int sizeOf(List<Stmt> statements) {
+            return statements.stream().mapToInt(Stmt::size).sum();
+        }
+    }
+
+    private record Assign(String target, Expr value) implements Stmt {
+        public void emit(StringBuilder out, int indent) {
+            out.append("   ".repeat(indent)).append(target).append(" <- ").append(value.text()).append(" % 1000\n");
+        }
+
+        public void execute(Env env) {
+            env.set(target, value.evaluate(env) % 1000);
+        }
+
+        public int size() {
+            return 1;
+        }
+    }
+
+    private record AssignElement(Expr index, Expr value, int arraySize) implements Stmt {
+        public void emit(StringBuilder out, int indent) {
+            out.append("   ".repeat(indent)).append("vet[").append(index.text()).append(" % ").append(arraySize)
+                    .append(" + 1] <- ").append(value.text()).append(" % 1000\n");
+        }
+
+        public void execute(Env env) {
+            int slot = index.evaluate(env) % arraySize + 1;
+            env.array[slot] = value.evaluate(env) % 1000;
+        }
+
+        public int size() {
+            return 1;
+        }
+    }
+
+    private record If(Expr condition, List<Stmt> then, List<Stmt> otherwise) implements Stmt {
+        public void emit(StringBuilder out, int indent) {
+            String padding = "   ".repeat(indent);
+            out.append(padding).append("se ").append(condition.text()).append(" % 1000 > 500 entao\n");
+            Stmt.emitBlock(then, out, indent + 1);
+            out.append(padding).append("senao\n");
+            Stmt.emitBlock(otherwise, out, indent + 1);
+            out.append(padding).append("fimse\n");
+        }
+
+        public void execute(Env env) {
+            Stmt.executeBlock(condition.evaluate(env) % 1000 > 500 ? then : otherwise, env);
+        }
+
+        public int size() {
+            return 1 + Stmt.sizeOf(then) + Stmt.sizeOf(otherwise);
+        }
+    }
+
+    private record For(String counter, List<Stmt> body) implements Stmt {
+        public void emit(StringBuilder out, int indent) {
+            String padding = "   ".repeat(indent);
+            out.append(padding).append("para ").append(counter).append(" de 1 ate ").append(LOOP_COUNT).append(" faca\n");
+            Stmt.emitBlock(body, out, indent + 1);
+            out.append(padding).append("fimpara\n");
+        }
+
+        public void execute(Env env) {
+            for (int i = 1; i <= LOOP_COUNT; i++) {
+                env.set(counter, i);
+                Stmt.executeBlock(body, env);
+            }
+            env.set(counter, LOOP_COUNT + 1);
+        }
+
+        public int size() {
+            return 1 + Stmt.sizeOf(body);
+        }
+    }
+
+    // Also makes the counter readable as i<depth> inside the body, like a para
+    private record While(String counter, List<Stmt> body) implements Stmt {
+        public void emit(StringBuilder out, int indent) {
+            String padding = "   ".repeat(indent);
+            String loopVariable = "i" + counter.substring(1);
+            out.append(padding).append(counter).append(" <- 0\n");
+            out.append(padding).append("enquanto ").append(counter).append(" < ").append(LOOP_COUNT).append(" faca\n");
+            out.append(padding).append("   ").append(counter).append(" <- ").append(counter).append(" + 1\n");
+            out.append(padding).append("   ").append(loopVariable).append(" <- ").append(counter).append('\n');
+            Stmt.emitBlock(body, out, indent + 1);
+            out.append(padding).append("fimenquanto\n");
+        }
+
+        public void execute(Env env) {
+            String loopVariable = "i" + counter.substring(1);
+            env.set(counter, 0);
+            while (env.get(counter) < LOOP_COUNT) {
+                env.set(counter, env.get(counter) + 1);
+                env.set(loopVariable, env.get(counter));
+                Stmt.executeBlock(body, env);
+            }
+        }
+
+        public int size() {
+            return 1 + Stmt.sizeOf(body);
+        }
+    }
+}
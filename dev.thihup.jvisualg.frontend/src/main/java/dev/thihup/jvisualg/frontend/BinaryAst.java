@@ -0,0 +1,503 @@
+package dev.thihup.jvisualg.frontend;
+
+import dev.thihup.jvisualg.frontend.node.Location;
+import dev.thihup.jvisualg.frontend.node.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Layout: "ALGC" magic, u16 version, 32-byte SHA-256 of the source, then the tree in pre-order.
+// Each node starts with its kind byte, with the high bit set when a location follows as four varints.
+// Strings are written once; later occurrences are a varint index into the strings seen so far.
+public final class BinaryAst {
+
+    public static final String EXTENSION = ".algc";
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x414C4743;
+    private static final int HASH_LENGTH = 32;
+    private static final int HAS_LOCATION = 0x80;
+
+    // Append only: the ordinal is the kind byte on disk. Bump VERSION when an existing node changes shape.
+    private enum Kind {
+        EMPTY, EMPTY_EXPRESSION, ALGORITMO, FUNCTION_DECLARATION, PROCEDURE_DECLARATION, REGISTRO_DECLARATION,
+        VARIABLE_DECLARATION, CONSTANT, COMPUND, BOOLEAN_LITERAL, INT_LITERAL, REAL_LITERAL, STRING_LITERAL,
+        INTEIRO_TYPE, REAL_TYPE, CARACTER_TYPE, LOGICO_TYPE, USER_DEFINED_TYPE, ARRAY_TYPE, END_ALGORITHM,
+        INTERROMPA, RETURN, DOS, ASSIGNMENT, ID, ARRAY_ACCESS, MEMBER_ACCESS, READ, WRITE, WRITE_ITEM,
+        CONDITIONAL, RANGE, CHOOSE, CHOOSE_CASE, WHILE, FOR, PROCEDURE_CALL, FUNCTION_CALL, ADD, SUB, MUL,
+        DIV, MOD, POW, AND, OR, NOT, EQ, NE, LT, LE, GT, GE, NEG, POS, ARQUIVO, ALEATORIO_RANGE, ALEATORIO_ON,
+        ALEATORIO_OFF, TIMER, PAUSA, DEBUG, ECO, CRONOMETRO, LIMPATELA;
+
+        private static final Kind[] VALUES = values();
+    }
+
+    private BinaryAst() {
+    }
+
+    public static byte[] write(Node node, String source) {
+        Writer writer = new Writer();
+        writer.out.writeBytes(ByteBuffer.allocate(6).putInt(MAGIC).putShort((short) VERSION).array());
+        writer.out.writeBytes(sha256(source));
+        writer.node(node);
+        return writer.out.toByteArray();
+    }
+
+    public static void write(Node node, String source, Path file) throws IOException {
+        // Write next to the target and move it in place, so concurrent readers never see half a file
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, write(node, source));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static Node read(ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (!readHeader(input)) {
+            throw new IllegalArgumentException("Unsupported compiled VisuAlg version");
+        }
+        input.position(input.position() + HASH_LENGTH);
+        return new Reader(input).node();
+    }
+
+    // Empty when the file is missing, was written by another format version or for a different source text
+    public static Optional<Node> read(Path file, String source) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!readHeader(buffer)) {
+                return Optional.empty();
+            }
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            if (!Arrays.equals(hash, sha256(source))) {
+                return Optional.empty();
+            }
+            return Optional.of(new Reader(buffer).node());
+        } catch (RuntimeException _) {
+            // Truncated or corrupt file: treat it as a cache miss
+            return Optional.empty();
+        }
+    }
+
+    // Loads "<source>.algc" when it matches the source, otherwise parses and refreshes it
+    public static ASTResult loadOrParse(Path source) throws IOException {
+        String code = Files.readString(source, StandardCharsets.ISO_8859_1);
+        Path compiled = source.resolveSibling(source.getFileName() + EXTENSION);
+        Optional<Node> cached = read(compiled, code);
+        if (cached.isPresent()) {
+            return new ASTResult(cached, List.of());
+        }
+        ASTResult result = VisualgParser.parse(code);
+        if (result.errors().isEmpty() && result.node().isPresent()) {
+            write(result.node().get(), code, compiled);
+        }
+        return result;
+    }
+
+    private static boolean readHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < 6 + HASH_LENGTH || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled VisuAlg file");
+        }
+        return buffer.getShort() == VERSION;
+    }
+
+    private static byte[] sha256(String source) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        void node(Node node) {
+            switch (node) {
+                case Node.EmptyNode _ -> header(Kind.EMPTY, node);
+                case Node.EmptyExpressionNode _ -> header(Kind.EMPTY_EXPRESSION, node);
+                case Node.AlgoritimoNode n -> {
+                    header(Kind.ALGORITMO, n);
+                    nodes(n.text(), n.declarations(), n.commands());
+                }
+                case Node.FunctionDeclarationNode n -> {
+                    header(Kind.FUNCTION_DECLARATION, n);
+                    nodes(n.name(), n.returnType(), n.parameters(), n.declarations(), n.commands());
+                }
+                case Node.ProcedureDeclarationNode n -> {
+                    header(Kind.PROCEDURE_DECLARATION, n);
+                    nodes(n.name(), n.parameters(), n.declarations(), n.commands());
+                }
+                case Node.RegistroDeclarationNode n -> {
+                    header(Kind.REGISTRO_DECLARATION, n);
+                    nodes(n.name(), n.variableDeclarationContexts());
+                }
+                case Node.VariableDeclarationNode n -> {
+                    header(Kind.VARIABLE_DECLARATION, n);
+                    nodes(n.name(), n.type());
+                    bool(n.reference());
+                }
+                case Node.ConstantNode n -> {
+                    header(Kind.CONSTANT, n);
+                    nodes(n.name(), n.value());
+                }
+                case Node.CompundNode<?> n -> {
+                    header(Kind.COMPUND, n);
+                    varint(n.nodes().size());
+                    n.nodes().forEach(this::node);
+                }
+                case Node.BooleanLiteralNode n -> {
+                    header(Kind.BOOLEAN_LITERAL, n);
+                    bool(n.value());
+                }
+                case Node.IntLiteralNode n -> {
+                    header(Kind.INT_LITERAL, n);
+                    varint(n.value());
+                }
+                case Node.RealLiteralNode n -> {
+                    header(Kind.REAL_LITERAL, n);
+                    out.writeBytes(ByteBuffer.allocate(Double.BYTES).putDouble(n.value()).array());
+                }
+                case Node.StringLiteralNode n -> {
+                    header(Kind.STRING_LITERAL, n);
+                    string(n.value());
+                }
+                case Node.InteiroType _ -> header(Kind.INTEIRO_TYPE, node);
+                case Node.RealType _ -> header(Kind.REAL_TYPE, node);
+                case Node.CaracterType _ -> header(Kind.CARACTER_TYPE, node);
+                case Node.LogicoType _ -> header(Kind.LOGICO_TYPE, node);
+                case Node.UserDefinedType n -> {
+                    header(Kind.USER_DEFINED_TYPE, n);
+                    node(n.type());
+                }
+                case Node.ArrayTypeNode n -> {
+                    header(Kind.ARRAY_TYPE, n);
+                    nodes(n.type(), n.sizes());
+                }
+                case Node.EndAlgorithmCommand _ -> header(Kind.END_ALGORITHM, node);
+                case Node.InterrompaCommandNode _ -> header(Kind.INTERROMPA, node);
+                case Node.ReturnNode n -> {
+                    header(Kind.RETURN, n);
+                    node(n.expr());
+                }
+                case Node.DosNode _ -> header(Kind.DOS, node);
+                case Node.AssignmentNode n -> {
+                    header(Kind.ASSIGNMENT, n);
+                    nodes(n.idOrArray(), n.expr());
+                }
+                case Node.IdNode n -> {
+                    header(Kind.ID, n);
+                    string(n.id());
+                }
+                case Node.ArrayAccessNode n -> {
+                    header(Kind.ARRAY_ACCESS, n);
+                    nodes(n.node(), n.indexes());
+                }
+                case Node.MemberAccessNode n -> {
+                    header(Kind.MEMBER_ACCESS, n);
+                    nodes(n.node(), n.member());
+                }
+                case Node.ReadCommandNode n -> {
+                    header(Kind.READ, n);
+                    node(n.exprList());
+                }
+                case Node.WriteCommandNode n -> {
+                    header(Kind.WRITE, n);
+                    bool(n.newLine());
+                    node(n.writeList());
+                }
+                case Node.WriteItemNode n -> {
+                    header(Kind.WRITE_ITEM, n);
+                    nodes(n.expr(), n.spaces(), n.precision());
+                }
+                case Node.ConditionalCommandNode n -> {
+                    header(Kind.CONDITIONAL, n);
+                    nodes(n.expr(), n.commands(), n.elseCommands());
+                }
+                case Node.RangeNode n -> {
+                    header(Kind.RANGE, n);
+                    nodes(n.start(), n.end());
+                }
+                case Node.ChooseCommandNode n -> {
+                    header(Kind.CHOOSE, n);
+                    nodes(n.expr(), n.cases(), n.defaultCase());
+                }
+                case Node.ChooseCaseNode n -> {
+                    header(Kind.CHOOSE_CASE, n);
+                    nodes(n.value(), n.commands());
+                }
+                case Node.WhileCommandNode n -> {
+                    header(Kind.WHILE, n);
+                    nodes(n.test(), n.commands());
+                    bool(n.conditionAtEnd());
+                }
+                case Node.ForCommandNode n -> {
+                    header(Kind.FOR, n);
+                    nodes(n.identifier(), n.startValue(), n.endValue(), n.step(), n.commands());
+                }
+                case Node.ProcedureCallNode n -> {
+                    header(Kind.PROCEDURE_CALL, n);
+                    nodes(n.name(), n.args());
+                }
+                case Node.FunctionCallNode n -> {
+                    header(Kind.FUNCTION_CALL, n);
+                    nodes(n.name(), n.args());
+                }
+                case Node.AddNode n -> binary(Kind.ADD, n);
+                case Node.SubNode n -> binary(Kind.SUB, n);
+                case Node.MulNode n -> binary(Kind.MUL, n);
+                case Node.DivNode n -> {
+                    binary(Kind.DIV, n);
+                    bool(n.integerResult());
+                }
+                case Node.ModNode n -> binary(Kind.MOD, n);
+                case Node.PowNode n -> binary(Kind.POW, n);
+                case Node.AndNode n -> binary(Kind.AND, n);
+                case Node.OrNode n -> binary(Kind.OR, n);
+                case Node.NotNode n -> {
+                    header(Kind.NOT, n);
+                    node(n.expr());
+                }
+                case Node.EqNode n -> binary(Kind.EQ, n);
+                case Node.NeNode n -> binary(Kind.NE, n);
+                case Node.LtNode n -> binary(Kind.LT, n);
+                case Node.LeNode n -> binary(Kind.LE, n);
+                case Node.GtNode n -> binary(Kind.GT, n);
+                case Node.GeNode n -> binary(Kind.GE, n);
+                case Node.NegNode n -> {
+                    header(Kind.NEG, n);
+                    node(n.expr());
+                }
+                case Node.PosNode n -> {
+                    header(Kind.POS, n);
+                    node(n.expr());
+                }
+                case Node.ArquivoCommandNode n -> {
+                    header(Kind.ARQUIVO, n);
+                    node(n.filename());
+                }
+                case Node.AleatorioRangeNode n -> {
+                    header(Kind.ALEATORIO_RANGE, n);
+                    nodes(n.start(), n.end(), n.decimalPlaces());
+                }
+                case Node.AleatorioOnNode _ -> header(Kind.ALEATORIO_ON, node);
+                case Node.AleatorioOffNode _ -> header(Kind.ALEATORIO_OFF, node);
+                case Node.TimerCommandNode n -> {
+                    header(Kind.TIMER, n);
+                    bool(n.on());
+                    varint(n.value());
+                }
+                case Node.PausaCommandNode _ -> header(Kind.PAUSA, node);
+                case Node.DebugCommandNode n -> {
+                    header(Kind.DEBUG, n);
+                    node(n.expr());
+                }
+                case Node.EcoCommandNode n -> {
+                    header(Kind.ECO, n);
+                    bool(n.on());
+                }
+                case Node.CronometroCommandNode n -> {
+                    header(Kind.CRONOMETRO, n);
+                    bool(n.on());
+                }
+                case Node.LimpatelaCommandNode _ -> header(Kind.LIMPATELA, node);
+            }
+        }
+
+        private void nodes(Node... nodes) {
+            for (Node node : nodes) {
+                node(node);
+            }
+        }
+
+        private void binary(Kind kind, Node.BinaryNode node) {
+            header(kind, node);
+            nodes(node.left(), node.right());
+        }
+
+        private void header(Kind kind, Node node) {
+            Optional<Location> location = node.location();
+            out.write(kind.ordinal() | (location.isPresent() ? HAS_LOCATION : 0));
+            location.ifPresent(l -> {
+                varint(l.startLine());
+                varint(l.startColumn());
+                varint(l.endLine());
+                varint(l.endColumn());
+            });
+        }
+
+        private void bool(boolean value) {
+            out.write(value ? 1 : 0);
+        }
+
+        private void string(String value) {
+            Integer index = strings.get(value);
+            if (index != null) {
+                varint(index);
+                return;
+            }
+            varint(strings.size());
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        // Zig-zag LEB128, so the occasional negative literal or column stays small
+        private void varint(int value) {
+            int zigzag = (value << 1) ^ (value >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                out.write((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write(zigzag);
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer in;
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends Node> T node() {
+            int header = in.get() & 0xFF;
+            int ordinal = header & ~HAS_LOCATION;
+            if (ordinal >= Kind.VALUES.length) {
+                throw new IllegalArgumentException("Unknown node kind " + ordinal);
+            }
+            Optional<Location> l = (header & HAS_LOCATION) != 0
+                    ? Optional.of(new Location(varint(), varint(), varint(), varint()))
+                    : Optional.empty();
+            Node node = switch (Kind.VALUES[ordinal]) {
+                case EMPTY -> Node.EmptyNode.INSTANCE;
+                case EMPTY_EXPRESSION -> Node.EmptyExpressionNode.INSTANCE;
+                case ALGORITMO -> new Node.AlgoritimoNode(node(), node(), node(), l);
+                case FUNCTION_DECLARATION -> new Node.FunctionDeclarationNode(node(), node(), node(), node(), node(), l);
+                case PROCEDURE_DECLARATION -> new Node.ProcedureDeclarationNode(node(), node(), node(), node(), l);
+                case REGISTRO_DECLARATION -> new Node.RegistroDeclarationNode(node(), node(), l);
+                case VARIABLE_DECLARATION -> new Node.VariableDeclarationNode(node(), node(), bool(), l);
+                case CONSTANT -> new Node.ConstantNode(node(), node(), l);
+                case COMPUND -> {
+                    int size = varint();
+                    List<Node> nodes = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        nodes.add(node());
+                    }
+                    yield new Node.CompundNode<>(List.copyOf(nodes), l);
+                }
+                case BOOLEAN_LITERAL -> new Node.BooleanLiteralNode(bool(), l);
+                case INT_LITERAL -> new Node.IntLiteralNode(varint(), l);
+                case REAL_LITERAL -> new Node.RealLiteralNode(in.getDouble(), l);
+                case STRING_LITERAL -> new Node.StringLiteralNode(string(), l);
+                case INTEIRO_TYPE -> new Node.InteiroType(l);
+                case REAL_TYPE -> new Node.RealType(l);
+                case CARACTER_TYPE -> new Node.CaracterType(l);
+                case LOGICO_TYPE -> new Node.LogicoType(l);
+                case USER_DEFINED_TYPE -> new Node.UserDefinedType(node(), l);
+                case ARRAY_TYPE -> new Node.ArrayTypeNode(node(), node(), l);
+                case END_ALGORITHM -> new Node.EndAlgorithmCommand(l);
+                case INTERROMPA -> new Node.InterrompaCommandNode(l);
+                case RETURN -> new Node.ReturnNode(node(), l);
+                case DOS -> new Node.DosNode(l);
+                case ASSIGNMENT -> new Node.AssignmentNode(node(), node(), l);
+                case ID -> new Node.IdNode(string(), l);
+                case ARRAY_ACCESS -> new Node.ArrayAccessNode(node(), node(), l);
+                case MEMBER_ACCESS -> new Node.MemberAccessNode(node(), node(), l);
+                case READ -> new Node.ReadCommandNode(node(), l);
+                case WRITE -> new Node.WriteCommandNode(bool(), node(), l);
+                case WRITE_ITEM -> new Node.WriteItemNode(node(), node(), node(), l);
+                case CONDITIONAL -> new Node.ConditionalCommandNode(node(), node(), node(), l);
+                case RANGE -> new Node.RangeNode(node(), node(), l);
+                case CHOOSE -> new Node.ChooseCommandNode(node(), node(), node(), l);
+                case CHOOSE_CASE -> new Node.ChooseCaseNode(node(), node(), l);
+                case WHILE -> new Node.WhileCommandNode(node(), node(), bool(), l);
+                case FOR -> new Node.ForCommandNode(node(), node(), node(), node(), node(), l);
+                case PROCEDURE_CALL -> new Node.ProcedureCallNode(node(), node(), l);
+                case FUNCTION_CALL -> new Node.FunctionCallNode(node(), node(), l);
+                case ADD -> new Node.AddNode(node(), node(), l);
+                case SUB -> new Node.SubNode(node(), node(), l);
+                case MUL -> new Node.MulNode(node(), node(), l);
+                case DIV -> new Node.DivNode(node(), node(), bool(), l);
+                case MOD -> new Node.ModNode(node(), node(), l);
+                case POW -> new Node.PowNode(node(), node(), l);
+                case AND -> new Node.AndNode(node(), node(), l);
+                case OR -> new Node.OrNode(node(), node(), l);
+                case NOT -> new Node.NotNode(node(), l);
+                case EQ -> new Node.EqNode(node(), node(), l);
+                case NE -> new Node.NeNode(node(), node(), l);
+                case LT -> new Node.LtNode(node(), node(), l);
+                case LE -> new Node.LeNode(node(), node(), l);
+                case GT -> new Node.GtNode(node(), node(), l);
+                case GE -> new Node.GeNode(node(), node(), l);
+                case NEG -> new Node.NegNode(node(), l);
+                case POS -> new Node.PosNode(node(), l);
+                case ARQUIVO -> new Node.ArquivoCommandNode(node(), l);
+                case ALEATORIO_RANGE -> new Node.AleatorioRangeNode(node(), node(), node(), l);
+                case ALEATORIO_ON -> new Node.AleatorioOnNode(l);
+                case ALEATORIO_OFF -> new Node.AleatorioOffNode(l);
+                case TIMER -> new Node.TimerCommandNode(bool(), varint(), l);
+                case PAUSA -> new Node.PausaCommandNode(l);
+                case DEBUG -> new Node.DebugCommandNode(node(), l);
+                case ECO -> new Node.EcoCommandNode(bool(), l);
+                case CRONOMETRO -> new Node.CronometroCommandNode(bool(), l);
+                case LIMPATELA -> new Node.LimpatelaCommandNode(l);
+            };
+            return (T) node;
+        }
+
+        private boolean bool() {
+            return in.get() != 0;
+        }
+
+        private String string() {
+            int index = varint();
+            if (index < strings.size()) {
+                return strings.get(index);
+            }
+            byte[] bytes = new byte[varint()];
+            in.get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        private int varint() {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.get() & 0xFF;
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (result >>> 1) ^ -(result & 1);
+        }
+    }
+}
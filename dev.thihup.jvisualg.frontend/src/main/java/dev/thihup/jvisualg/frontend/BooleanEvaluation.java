@@ -0,0 +1,7 @@
+package dev.thihup.jvisualg.frontend;
+
+public enum BooleanEvaluation {
+    SHORT_CIRCUIT,
+    // VisuAlg 3.0 always evaluates both operands of "e" and "ou"
+    STRICT
+}
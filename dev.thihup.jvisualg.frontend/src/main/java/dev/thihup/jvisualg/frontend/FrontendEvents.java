@@ -0,0 +1,57 @@
+package dev.thihup.jvisualg.frontend;
+
+import dev.thihup.jvisualg.frontend.node.Location;
+import dev.thihup.jvisualg.frontend.node.Node;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Optional;
+
+final class FrontendEvents {
+
+    private FrontendEvents() {
+    }
+
+    static String programName(Optional<Node> node) {
+        return node.filter(Node.AlgoritimoNode.class::isInstance)
+                .map(Node.AlgoritimoNode.class::cast)
+                .map(Node.AlgoritimoNode::name)
+                .orElse("");
+    }
+
+    static int sourceLines(Optional<Node> node) {
+        return node.flatMap(Node::location).map(Location::endLine).orElse(0);
+    }
+
+    @Name("dev.thihup.jvisualg.Parse")
+    @Label("Parse")
+    @Category({"JVisualg", "Frontend"})
+    @Description("Lexing, parsing and building the AST of a program")
+    static final class Parse extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Source Lines")
+        int sourceLines;
+
+        @Label("Errors")
+        int errors;
+    }
+
+    @Name("dev.thihup.jvisualg.TypeCheck")
+    @Label("Type Check")
+    @Category({"JVisualg", "Frontend"})
+    @Description("Semantic analysis of a parsed program")
+    static final class TypeCheck extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Source Lines")
+        int sourceLines;
+
+        @Label("Errors")
+        int errors;
+    }
+}
@@ -0,0 +1,116 @@
+package dev.thihup.jvisualg.frontend;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public final class ParseCache {
+
+    // Rough retained size of a node record plus its Location and Optional wrappers
+    private static final long ESTIMATED_BYTES_PER_NODE = 120;
+
+    private static final ParseCache SHARED = new ParseCache(64L * 1024 * 1024);
+
+    public record Entry(ASTResult astResult, Optional<TypeCheckerResult> typeCheckerResult, long estimatedBytes) {
+        public List<Error> errors() {
+            List<Error> errors = new ArrayList<>(astResult.errors());
+            typeCheckerResult.ifPresent(result -> errors.addAll(result.errors()));
+            return List.copyOf(errors);
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private long hits;
+    private long misses;
+
+    public ParseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static ParseCache shared() {
+        return SHARED;
+    }
+
+    public Entry get(String code) {
+        String key = hash(code);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+            misses++;
+        }
+
+        // Parse outside the lock; two threads racing on the same source just parse it twice
+        Entry entry = analyse(code);
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                currentBytes -= previous.estimatedBytes();
+            }
+            currentBytes += entry.estimatedBytes();
+            evict();
+        }
+        return entry;
+    }
+
+    public ASTResult parse(String code) {
+        return get(code).astResult();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long estimatedBytes() {
+        return currentBytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        // Always keep the most recent entry, even if it alone is bigger than the budget
+        while (currentBytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+            currentBytes -= iterator.next().getValue().estimatedBytes();
+            iterator.remove();
+        }
+    }
+
+    private static Entry analyse(String code) {
+        ASTResult parsed = VisualgParser.parse(code);
+        ASTResult astResult = new ASTResult(parsed.node(), List.copyOf(parsed.errors()));
+        Optional<TypeCheckerResult> typeCheckerResult = astResult.node()
+                .map(TypeChecker::semanticAnalysis)
+                .map(result -> new TypeCheckerResult(result.node(), List.copyOf(result.errors()), result.scope()));
+        long nodes = astResult.node().map(node -> 1 + node.visitChildren().count()).orElse(0L);
+        long estimatedBytes = nodes * ESTIMATED_BYTES_PER_NODE + 2L * code.length();
+        return new Entry(astResult, typeCheckerResult, estimatedBytes);
+    }
+
+    private static String hash(String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(code.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -170,12 +170,21 @@ public class TypeChecker {
     }
 
     public static TypeCheckerResult semanticAnalysis(Node node) {
+        FrontendEvents.TypeCheck event = new FrontendEvents.TypeCheck();
+        event.begin();
         List<Error> errors = new ArrayList<>();
 
         Scope scope = Scope.newScope("GLOBAL", DEFAULT_GLOBAL_SCOPE);
 
         semanticAnalysis(node, scope, errors);
 
+        if (event.shouldCommit()) {
+            event.programName = FrontendEvents.programName(Optional.of(node));
+            event.sourceLines = FrontendEvents.sourceLines(Optional.of(node));
+            event.errors = errors.size();
+            event.commit();
+        }
+
         return new TypeCheckerResult(Optional.of(node), errors, scope);
     }
 
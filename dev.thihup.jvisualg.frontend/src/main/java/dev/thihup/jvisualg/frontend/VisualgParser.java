@@ -25,6 +25,19 @@ public class VisualgParser {
         return parse(new ByteArrayInputStream(code.getBytes(StandardCharsets.ISO_8859_1)));
     }
     public static ASTResult parse(InputStream code) {
+        FrontendEvents.Parse event = new FrontendEvents.Parse();
+        event.begin();
+        ASTResult result = parseUninstrumented(code);
+        if (event.shouldCommit()) {
+            event.programName = FrontendEvents.programName(result.node());
+            event.sourceLines = FrontendEvents.sourceLines(result.node());
+            event.errors = result.errors().size();
+            event.commit();
+        }
+        return result;
+    }
+
+    private static ASTResult parseUninstrumented(InputStream code) {
         var errorListener = new BaseErrorListener();
         try {
             CharStream charStream = CharStreams.fromStream(code, StandardCharsets.ISO_8859_1);
@@ -37,9 +50,7 @@ public class VisualgParser {
             parser.removeErrorListeners();
             parser.addErrorListener(errorListener);
 
-            VisuAlgParser.AlgorithmContext ctx = parser.algorithm();
-            var visitor = new VisuAlgParserVisitor();
-            Node rootNode = visitor.visit(ctx);
+            Node rootNode = buildAst(parser.algorithm());
 
             return new ASTResult(Optional.ofNullable(rootNode), errorListener.errors);
         } catch (Exception e) {
@@ -48,6 +59,11 @@ public class VisualgParser {
     }
 
 
+    // The AST of an already parsed tree, for callers that time or reuse the two phases separately
+    public static Node buildAst(VisuAlgParser.AlgorithmContext parseTree) {
+        return new VisuAlgParserVisitor().visit(parseTree);
+    }
+
     static class BaseErrorListener extends org.antlr.v4.runtime.BaseErrorListener {
         final List<Error> errors = new ArrayList<>();
 
@@ -155,6 +155,12 @@ public sealed interface Node {
             Objects.requireNonNull(commands);
             Objects.requireNonNull(location);
         }
+
+        // The parser keeps the quotes of the algoritmo "name" literal
+        public String name() {
+            String value = text.value();
+            return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+        }
     }
 
     sealed interface DeclarationNode extends Node {}
@@ -1,11 +1,22 @@
 package dev.thihup.jvisualg.frontend;
 
 import dev.thihup.jvisualg.examples.ExamplesBase;
+import dev.thihup.jvisualg.examples.ProgramGenerator;
+import dev.thihup.jvisualg.frontend.node.Location;
+import dev.thihup.jvisualg.frontend.node.Node;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class VisualgParserTest extends ExamplesBase {
 
@@ -17,6 +28,97 @@ class VisualgParserTest extends ExamplesBase {
         typecheckResult.errors().forEach(x -> System.out.println(path.toString().replace('\\', '/') + ":" + x));
     }
 
+    @ParameterizedTest
+    @MethodSource({"examplesV25", "examplesV30", "examplesCustom"})
+    void testBinaryAstRoundTrip(Path path) throws Throwable {
+        String code = Files.readString(path, StandardCharsets.ISO_8859_1);
+        Node node = VisualgParser.parse(code).node().orElseThrow();
+
+        byte[] bytes = BinaryAst.write(node, code);
+        Node read = BinaryAst.read(ByteBuffer.wrap(bytes));
+
+        assertArrayEquals(bytes, BinaryAst.write(read, code));
+        assertEquals(node.visitChildren().count(), read.visitChildren().count());
+    }
+
+    @Test
+    void testBinaryAstFileCache(@TempDir Path directory) throws Throwable {
+        Path source = directory.resolve("teste.alg");
+        Files.writeString(source, """
+                algoritmo "teste"
+                var
+                   x: real
+                inicio
+                   x <- 1.5 * -2
+                   escreval("x = ", x)
+                fimalgoritmo
+                """, StandardCharsets.ISO_8859_1);
+
+        ASTResult parsed = BinaryAst.loadOrParse(source);
+        Path compiled = directory.resolve("teste.alg" + BinaryAst.EXTENSION);
+        assertTrue(Files.exists(compiled));
+        assertEquals(parsed.node(), BinaryAst.loadOrParse(source).node());
+
+        assertTrue(BinaryAst.read(compiled, Files.readString(source, StandardCharsets.ISO_8859_1)).isPresent());
+        assertTrue(BinaryAst.read(compiled, "algoritmo \"outro\"\ninicio\nfimalgoritmo\n").isEmpty());
+    }
+
+    // Timing depends on the machine, so it only runs with -Djvisualg.performanceTests=true
+    @Test
+    @EnabledIfSystemProperty(named = "jvisualg.performanceTests", matches = "true")
+    void testFrontendScalesLinearly() {
+        String small = ProgramGenerator.generate(ProgramGenerator.Options.ofLines(7, 2_000)).source();
+        String large = ProgramGenerator.generate(ProgramGenerator.Options.ofLines(7, 16_000)).source();
+        ASTResult parsed = VisualgParser.parse(large);
+        assertEquals(List.of(), parsed.errors());
+        assertEquals(List.of(), TypeChecker.semanticAnalysis(parsed.node().orElseThrow()).errors());
+
+        long smallNanos = fastestFrontendRun(small);
+        long largeNanos = fastestFrontendRun(large);
+        // 8x the lines; quadratic behaviour would show up as ~64x
+        assertTrue(largeNanos < smallNanos * 8 * 3, () -> "2k lines: " + smallNanos / 1_000_000 + " ms, 16k lines: " + largeNanos / 1_000_000 + " ms");
+    }
+
+    private static long fastestFrontendRun(String code) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            TypeChecker.semanticAnalysis(VisualgParser.parse(code).node().orElseThrow());
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest;
+    }
+
+    @Test
+    void testParseCache() {
+        String first = """
+                algoritmo "primeiro"
+                inicio
+                   escreval("ola")
+                fimalgoritmo
+                """;
+        String second = """
+                algoritmo "segundo"
+                inicio
+                   escreval("mundo")
+                fimalgoritmo
+                """;
+        ParseCache cache = new ParseCache(Long.MAX_VALUE);
+
+        ParseCache.Entry entry = cache.get(first);
+        assertSame(entry, cache.get(first));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertTrue(entry.typeCheckerResult().isPresent());
+        assertThrows(UnsupportedOperationException.class, () -> entry.astResult().errors().add(new Error("", Location.EMPTY)));
+
+        ParseCache small = new ParseCache(1);
+        ParseCache.Entry smallEntry = small.get(first);
+        small.get(second);
+        assertNotSame(smallEntry, small.get(first));
+        assertEquals(3, small.misses());
+    }
+
 
 
 }
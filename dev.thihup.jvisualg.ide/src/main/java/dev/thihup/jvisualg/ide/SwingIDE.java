@@ -2,6 +2,7 @@ package dev.thihup.jvisualg.ide;
 
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.icons.FlatAbstractIcon;
+import dev.thihup.jvisualg.frontend.BooleanEvaluation;
 import dev.thihup.jvisualg.interpreter.*;
 import dev.thihup.jvisualg.interpreter.IO;
 import dev.thihup.jvisualg.lsp.CodeCompletion;
@@ -19,12 +20,16 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.print.PrinterException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class SwingIDE extends JFrame {
 
@@ -35,6 +40,12 @@ public class SwingIDE extends JFrame {
             graphics2D.fillOval(0, 0, 10, 10);
         }
     };
+    // A checkpoint every thousand statements, the last hundred kept
+    private static final int TIME_TRAVEL_STEPS_PER_CHECKPOINT = 1_000;
+    private static final int TIME_TRAVEL_CHECKPOINTS = 100;
+    // total, v[5] or m[2,3], optionally followed by a comparison with a number: v[5] > 100
+    private static final Pattern WATCHPOINT = Pattern.compile(
+            "\\s*(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*(?:,\\s*(\\d+)\\s*)?])?\\s*(?:(>=|<=|<>|>|<|=)\\s*(-?\\d+(?:[.,]\\d+)?))?\\s*");
     private final TextEditorPane textArea;
     private final DefaultTableModel debugTable;
 
@@ -45,6 +56,10 @@ public class SwingIDE extends JFrame {
 
     private final Interpreter interpreter;
     private final List<GutterIconInfo> breakpointLines = new ArrayList<>();
+    private final List<GutterIconInfo> heatLines = new ArrayList<>();
+    private final List<Watchpoint> watchpoints = new ArrayList<>();
+    private boolean profiling;
+    private Profile lastProfile = Profile.EMPTY;
 
 
     private Consumer<String> callback;
@@ -119,6 +134,8 @@ public class SwingIDE extends JFrame {
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F4, 0), "toggleBreakpoint");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0), "startOrContinue");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F7, 0), "stepDebugger");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F7, KeyEvent.SHIFT_DOWN_MASK), "stepBack");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F7, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK), "runBackToLine");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "handleEscape");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F, KeyEvent.CTRL_DOWN_MASK), "showReplace");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_R, KeyEvent.CTRL_DOWN_MASK), "showReplace");
@@ -152,6 +169,20 @@ public class SwingIDE extends JFrame {
             }
         });
 
+        actionMap.put("stepBack", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                interpreter.stepBack();
+            }
+        });
+
+        actionMap.put("runBackToLine", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                interpreter.runBackToLine(textArea.getCaretLineNumber() + 1);
+            }
+        });
+
         actionMap.put("handleEscape", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -377,9 +408,125 @@ public class SwingIDE extends JFrame {
 
         menuBar.add(themes);
 
+        JMenu options = new JMenu("Opções");
+        JCheckBoxMenuItem strictBooleanEvaluation = new JCheckBoxMenuItem("Avaliar \"e\" e \"ou\" por completo (VisuAlg 3.0)");
+        strictBooleanEvaluation.addActionListener(_ -> interpreter.setBooleanEvaluation(strictBooleanEvaluation.isSelected()
+                ? BooleanEvaluation.STRICT
+                : BooleanEvaluation.SHORT_CIRCUIT));
+        options.add(strictBooleanEvaluation);
+        JCheckBoxMenuItem profileExecution = new JCheckBoxMenuItem("Medir tempo por linha");
+        profileExecution.addActionListener(_ -> {
+            profiling = profileExecution.isSelected();
+            interpreter.setProfiling(profiling);
+            if (!profiling) {
+                clearHeat();
+            }
+        });
+        options.add(profileExecution);
+        JCheckBoxMenuItem timeTravel = new JCheckBoxMenuItem("Permitir voltar passos na depuração (Shift+F7)");
+        timeTravel.addActionListener(_ -> interpreter.setTimeTravel(
+                timeTravel.isSelected() ? TIME_TRAVEL_STEPS_PER_CHECKPOINT : 0,
+                timeTravel.isSelected() ? TIME_TRAVEL_CHECKPOINTS : 0));
+        options.add(timeTravel);
+        JMenuItem addWatchpoint = new JMenuItem("Observar variável...");
+        addWatchpoint.addActionListener(_ -> addWatchpoint());
+        options.add(addWatchpoint);
+        JMenuItem clearWatchpoints = new JMenuItem("Remover observações");
+        clearWatchpoints.addActionListener(_ -> {
+            watchpoints.forEach(interpreter::removeWatchpoint);
+            watchpoints.clear();
+        });
+        options.add(clearWatchpoints);
+        JMenuItem exportProfile = new JMenuItem("Exportar perfil (JSON)");
+        exportProfile.addActionListener(_ -> exportProfile());
+        options.add(exportProfile);
+        menuBar.add(options);
+
         return menuBar;
     }
 
+    private void addWatchpoint() {
+        String text = JOptionPane.showInputDialog(this, "Pausar quando mudar (ex.: total, v[5] > 100)");
+        if (text == null) {
+            return;
+        }
+        Optional<Watchpoint> watchpoint = parseWatchpoint(text);
+        if (watchpoint.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Observação inválida: " + text);
+            return;
+        }
+        watchpoints.add(watchpoint.get());
+        interpreter.addWatchpoint(watchpoint.get());
+    }
+
+    private static Optional<Watchpoint> parseWatchpoint(String text) {
+        Matcher matcher = WATCHPOINT.matcher(text);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        List<Integer> indexes = new ArrayList<>();
+        for (int group = 2; group <= 3; group++) {
+            if (matcher.group(group) != null) {
+                indexes.add(Integer.parseInt(matcher.group(group)));
+            }
+        }
+        Predicate<Object> condition = _ -> true;
+        if (matcher.group(4) != null) {
+            double limit = Double.parseDouble(matcher.group(5).replace(',', '.'));
+            String operator = matcher.group(4);
+            condition = value -> value instanceof Number number && switch (operator) {
+                case ">" -> number.doubleValue() > limit;
+                case ">=" -> number.doubleValue() >= limit;
+                case "<" -> number.doubleValue() < limit;
+                case "<=" -> number.doubleValue() <= limit;
+                case "<>" -> number.doubleValue() != limit;
+                default -> number.doubleValue() == limit;
+            };
+        }
+        return Optional.of(new Watchpoint(matcher.group(1), indexes, condition));
+    }
+
+    private void exportProfile() {
+        JFileChooser chooser = new JFileChooser(".");
+        chooser.setFileFilter(new FileNameExtensionFilter("JSON", "json"));
+        if (chooser.showSaveDialog(SwingIDE.this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                Files.writeString(chooser.getSelectedFile().toPath(), lastProfile.toJson());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void clearHeat() {
+        heatLines.forEach(scrollPane.getGutter()::removeTrackingIcon);
+        heatLines.clear();
+    }
+
+    private void showHeat(Profile profile) {
+        clearHeat();
+        long hottest = profile.lines().stream().mapToLong(Profile.LineProfile::selfNanos).max().orElse(0);
+        if (hottest <= 0) {
+            return;
+        }
+        for (Profile.LineProfile line : profile.lines()) {
+            float heat = (float) line.selfNanos() / hottest;
+            // From yellow (cold) to red (hottest line)
+            Color color = new Color(1f, 1f - heat, 0f);
+            FlatAbstractIcon icon = new FlatAbstractIcon(10, 10, color) {
+                @Override
+                protected void paintIcon(Component component, Graphics2D graphics2D) {
+                    graphics2D.fillRect(0, 0, 10, 10);
+                }
+            };
+            String tip = "%d execuções, %.3f ms".formatted(line.hits(), line.selfNanos() / 1e6);
+            try {
+                heatLines.add(scrollPane.getGutter().addLineTrackingIcon(line.line() - 1, icon, tip));
+            } catch (BadLocationException _) {
+            }
+        }
+    }
+
     private void openFile() {
         JFileChooser chooser = new JFileChooser(".");
         FileNameExtensionFilter filter = new FileNameExtensionFilter(
@@ -588,6 +735,7 @@ public class SwingIDE extends JFrame {
         debugTable.setRowCount(0);
         appendOutput("Início da execução\n", ToWhere.OUTPUT, When.NOW);
         interpreter.reset();
+        clearHeat();
         breakpointLines.forEach((location) -> interpreter.addBreakpoint(location.getMarkedOffset() + 1));
 
         dosContent.setText("");
@@ -622,6 +770,14 @@ public class SwingIDE extends JFrame {
             case InterpreterState.CompletedExceptionally(Throwable e) -> this.handleExecutionError(e);
             default -> throw new IllegalStateException("Unexpected value: " + interpreter.state());
         }
+        if (profiling) {
+            Profile profile = interpreter.profile();
+            appendOutput("\n\n" + profile.report(), ToWhere.OUTPUT, When.LATER);
+            SwingUtilities.invokeLater(() -> {
+                lastProfile = profile;
+                showHeat(profile);
+            });
+        }
         textArea.removeAllLineHighlights();
     }
 
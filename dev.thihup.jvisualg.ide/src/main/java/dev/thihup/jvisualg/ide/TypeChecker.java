@@ -1,9 +1,7 @@
 package dev.thihup.jvisualg.ide;
 
-import dev.thihup.jvisualg.frontend.ASTResult;
 import dev.thihup.jvisualg.frontend.Error;
-import dev.thihup.jvisualg.frontend.TypeCheckerResult;
-import dev.thihup.jvisualg.frontend.VisualgParser;
+import dev.thihup.jvisualg.frontend.ParseCache;
 import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
 import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
 import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
@@ -21,14 +19,7 @@ class TypeChecker extends AbstractParser {
 
         try {
             String text = doc.getText(0, doc.getLength());
-            ASTResult astResult = VisualgParser.parse(text);
-
-            List<Error> errors = astResult.errors();
-
-            astResult.node()
-                    .map(dev.thihup.jvisualg.frontend.TypeChecker::semanticAnalysis)
-                    .map(TypeCheckerResult::errors)
-                    .ifPresent(errors::addAll);
+            List<Error> errors = ParseCache.shared().get(text).errors();
 
             errors.stream()
                     .map(x -> {
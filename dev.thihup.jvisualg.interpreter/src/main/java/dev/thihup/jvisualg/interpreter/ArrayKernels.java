@@ -0,0 +1,27 @@
+package dev.thihup.jvisualg.interpreter;
+
+// The loops of ArrayLoop over unboxed vetor elements. Integer arithmetic wraps around like the interpreter's,
+// so integer kernels are exact in any order; real reductions keep the source order unless relaxed.
+interface ArrayKernels {
+
+    int sum(int[] values);
+
+    double sum(double initial, double[] values, boolean relaxed);
+
+    int dot(int[] left, int[] right);
+
+    double dot(double initial, double[] left, double[] right, boolean relaxed);
+
+    int max(int initial, int[] values);
+
+    double max(double initial, double[] values);
+
+    void scale(int[] values, int factor);
+
+    void scale(double[] values, double factor);
+
+    // The Vector API is an incubator module, only there when the launcher adds it with --add-modules jdk.incubator.vector
+    static ArrayKernels best() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ? new VectorKernels() : new ScalarKernels();
+    }
+}
@@ -0,0 +1,121 @@
+package dev.thihup.jvisualg.interpreter;
+
+import dev.thihup.jvisualg.frontend.node.Node;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Optional;
+
+// The para loops the interpreter can run as array kernels, with i being the loop variable:
+//   s <- s + v[i]                        Sum
+//   s <- s + a[i] * b[i]                 Dot
+//   se v[i] > m entao m <- v[i] fimse    Max
+//   a[i] <- b[i] * k                     Scale, with k a variable or a literal
+// Operands may come in either order. Whether the values have types a kernel handles is only known when the loop runs.
+sealed interface ArrayLoop {
+
+    record Sum(String accumulator, String array) implements ArrayLoop {
+    }
+
+    record Dot(String accumulator, String left, String right) implements ArrayLoop {
+    }
+
+    record Max(String accumulator, String array) implements ArrayLoop {
+    }
+
+    record Scale(String target, String source, Node.ExpressionNode factor) implements ArrayLoop {
+    }
+
+    static Optional<ArrayLoop> recognize(Node.ForCommandNode loop) {
+        String variable = loop.identifier().id();
+        if (loop.commands().nodes().size() != 1) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(switch (loop.commands().nodes().getFirst()) {
+            case Node.AssignmentNode(Node.IdNode(String accumulator, _), Node.AddNode(var left, var right, _), _)
+                    when !accumulator.equals(variable) -> reduction(variable, accumulator, left, right);
+            case Node.AssignmentNode(Node.ArrayAccessNode target, Node.MulNode(var left, var right, _), _) -> {
+                String targetArray = element(variable, target);
+                if (targetArray == null) {
+                    yield null;
+                }
+                if (element(variable, left) instanceof String source && invariant(variable, right)) {
+                    yield new Scale(targetArray, source, right);
+                }
+                if (element(variable, right) instanceof String source && invariant(variable, left)) {
+                    yield new Scale(targetArray, source, left);
+                }
+                yield null;
+            }
+            case Node.ConditionalCommandNode(var condition, var commands, var elseCommands, _)
+                    when commands.nodes().size() == 1 && elseCommands.nodes().isEmpty() -> max(variable, condition, commands.nodes().getFirst());
+            default -> null;
+        });
+    }
+
+    @Nullable
+    private static ArrayLoop reduction(String variable, String accumulator, Node.ExpressionNode left, Node.ExpressionNode right) {
+        Node.ExpressionNode term;
+        if (left instanceof Node.IdNode(String id, _) && id.equals(accumulator)) {
+            term = right;
+        } else if (right instanceof Node.IdNode(String id, _) && id.equals(accumulator)) {
+            term = left;
+        } else {
+            return null;
+        }
+        if (element(variable, term) instanceof String array) {
+            return new Sum(accumulator, array);
+        }
+        if (term instanceof Node.MulNode(var a, var b, _)
+                && element(variable, a) instanceof String leftArray && element(variable, b) instanceof String rightArray) {
+            return new Dot(accumulator, leftArray, rightArray);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static ArrayLoop max(String variable, Node.ExpressionNode condition, Node.CommandNode command) {
+        Node.ExpressionNode candidate;
+        Node.ExpressionNode maximum;
+        switch (condition) {
+            case Node.GtNode(var left, var right, _) -> {
+                candidate = left;
+                maximum = right;
+            }
+            case Node.LtNode(var left, var right, _) -> {
+                candidate = right;
+                maximum = left;
+            }
+            default -> {
+                return null;
+            }
+        }
+        if (!(maximum instanceof Node.IdNode(String accumulator, _)) || accumulator.equals(variable)
+                || !(element(variable, candidate) instanceof String array)) {
+            return null;
+        }
+        if (command instanceof Node.AssignmentNode(Node.IdNode(String assigned, _), var value, _)
+                && assigned.equals(accumulator) && array.equals(element(variable, value))) {
+            return new Max(accumulator, array);
+        }
+        return null;
+    }
+
+    // The name of a one-dimensional vetor indexed by the loop variable alone
+    @Nullable
+    private static String element(String variable, Node node) {
+        if (node instanceof Node.ArrayAccessNode(Node.IdNode(String array, _), var indexes, _)
+                && indexes.nodes().size() == 1 && indexes.nodes().getFirst() instanceof Node.IdNode(String index, _)
+                && index.equals(variable)) {
+            return array;
+        }
+        return null;
+    }
+
+    private static boolean invariant(String variable, Node.ExpressionNode factor) {
+        return switch (factor) {
+            case Node.IntLiteralNode _, Node.RealLiteralNode _ -> true;
+            case Node.IdNode(String id, _) -> !id.equals(variable);
+            default -> false;
+        };
+    }
+}
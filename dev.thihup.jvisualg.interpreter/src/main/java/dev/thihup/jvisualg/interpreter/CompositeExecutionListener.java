@@ -0,0 +1,68 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.List;
+
+final class CompositeExecutionListener implements ExecutionListener {
+    private final ExecutionListener[] listeners;
+
+    CompositeExecutionListener(List<ExecutionListener> listeners) {
+        this.listeners = listeners.toArray(ExecutionListener[]::new);
+    }
+
+    @Override
+    public void statementEnter(int line) {
+        for (ExecutionListener listener : listeners) {
+            listener.statementEnter(line);
+        }
+    }
+
+    @Override
+    public void statementExit(int line) {
+        // Exit in reverse order so listeners nest like the statements do
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            listeners[i].statementExit(line);
+        }
+    }
+
+    @Override
+    public void subprogramEnter(String name, int line) {
+        for (ExecutionListener listener : listeners) {
+            listener.subprogramEnter(name, line);
+        }
+    }
+
+    @Override
+    public void subprogramExit(String name) {
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            listeners[i].subprogramExit(name);
+        }
+    }
+
+    @Override
+    public void assign(String variable, Object value) {
+        for (ExecutionListener listener : listeners) {
+            listener.assign(variable, value);
+        }
+    }
+
+    @Override
+    public void read(String variable, Object value) {
+        for (ExecutionListener listener : listeners) {
+            listener.read(variable, value);
+        }
+    }
+
+    @Override
+    public void write(String text) {
+        for (ExecutionListener listener : listeners) {
+            listener.write(text);
+        }
+    }
+
+    @Override
+    public void branch(int line, int outcome) {
+        for (ExecutionListener listener : listeners) {
+            listener.branch(line, outcome);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package dev.thihup.jvisualg.interpreter;
+
+import dev.thihup.jvisualg.frontend.node.Location;
+import dev.thihup.jvisualg.frontend.node.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Line and branch coverage of one PreparedProgram, merged over any number of runs.
+// Each run records into its own bitmaps and ORs them in here when it ends.
+public final class Coverage {
+
+    public record Branch(int line, int outcome, boolean covered) {
+    }
+
+    private final Node root;
+    private final BitSet coverableLines = new BitSet();
+    // First branch slot of the se/escolha/loop starting on each line, -1 when there is none.
+    // Two branching commands on the same line share their slots.
+    private final int[] branchBase;
+    private final int[] branchOutcomes;
+    private final int branchSlots;
+    private final int lineCount;
+
+    private final long[] coveredLines;
+    private final long[] coveredBranches;
+    private long runs;
+
+    public Coverage(PreparedProgram program) {
+        this.root = program.root();
+        int lastLine = 0;
+        List<Node.CommandNode> commands = new ArrayList<>();
+        for (Node node : (Iterable<Node>) root.visitChildren()::iterator) {
+            if (node instanceof Node.CommandNode commandNode && !(node instanceof Node.ChooseCaseNode) && node.location().isPresent()) {
+                commands.add(commandNode);
+                lastLine = Math.max(lastLine, line(node));
+            }
+        }
+        this.lineCount = lastLine + 1;
+        this.branchBase = new int[lineCount];
+        this.branchOutcomes = new int[lineCount];
+        Arrays.fill(branchBase, -1);
+        int slots = 0;
+        for (Node.CommandNode command : commands) {
+            int line = line(command);
+            coverableLines.set(line);
+            int outcomes = switch (command) {
+                case Node.ConditionalCommandNode _, Node.WhileCommandNode _, Node.ForCommandNode _ -> 2;
+                case Node.ChooseCommandNode chooseCommandNode -> chooseCommandNode.cases().nodes().size() + 1;
+                default -> 0;
+            };
+            if (outcomes > 0 && branchBase[line] < 0) {
+                branchBase[line] = slots;
+                branchOutcomes[line] = outcomes;
+                slots += outcomes;
+            }
+        }
+        this.branchSlots = slots;
+        this.coveredLines = new long[words(lineCount)];
+        this.coveredBranches = new long[words(branchSlots)];
+    }
+
+    CoverageRecorder newRecorder(PreparedProgram program) {
+        if (program.root() != root) {
+            throw new IllegalArgumentException("Coverage was created for a different program");
+        }
+        return new CoverageRecorder(branchBase, branchOutcomes, words(lineCount), words(branchSlots));
+    }
+
+    synchronized void merge(CoverageRecorder recorder) {
+        for (int i = 0; i < coveredLines.length; i++) {
+            coveredLines[i] |= recorder.lines[i];
+        }
+        for (int i = 0; i < coveredBranches.length; i++) {
+            coveredBranches[i] |= recorder.branches[i];
+        }
+        runs++;
+    }
+
+    public synchronized long runs() {
+        return runs;
+    }
+
+    public boolean isCoverable(int line) {
+        return coverableLines.get(line);
+    }
+
+    public synchronized boolean isCovered(int line) {
+        return line >= 0 && line < lineCount && isSet(coveredLines, line);
+    }
+
+    public List<Integer> coverableLines() {
+        return coverableLines.stream().boxed().toList();
+    }
+
+    public synchronized List<Integer> uncoveredLines() {
+        return coverableLines.stream().filter(line -> !isSet(coveredLines, line)).boxed().toList();
+    }
+
+    // se: 0 then, 1 senao. Loops: 0 the body ran (repita: it repeated), 1 it did not.
+    // escolha: the index of the caso that ran, the number of casos for outrocaso.
+    public synchronized List<Branch> branches() {
+        List<Branch> branches = new ArrayList<>();
+        for (int line = 0; line < lineCount; line++) {
+            for (int outcome = 0; outcome < branchOutcomes[line]; outcome++) {
+                branches.add(new Branch(line, outcome, isSet(coveredBranches, branchBase[line] + outcome)));
+            }
+        }
+        return branches;
+    }
+
+    public synchronized double lineRate() {
+        int coverable = coverableLines.cardinality();
+        return coverable == 0 ? 1 : (double) (coverable - uncoveredLines().size()) / coverable;
+    }
+
+    public synchronized double branchRate() {
+        if (branchSlots == 0) {
+            return 1;
+        }
+        return (double) Arrays.stream(coveredBranches).map(Long::bitCount).sum() / branchSlots;
+    }
+
+    // Bit n of word n / 64 is set when line n ran
+    public synchronized long[] lineBitmap() {
+        return coveredLines.clone();
+    }
+
+    public synchronized long[] branchBitmap() {
+        return coveredBranches.clone();
+    }
+
+    private static boolean isSet(long[] bitmap, int index) {
+        return (bitmap[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static int line(Node node) {
+        return node.location().orElse(Location.EMPTY).startLine();
+    }
+}
@@ -0,0 +1,30 @@
+package dev.thihup.jvisualg.interpreter;
+
+// Records a single run without any locking; Coverage.merge folds it into the totals
+final class CoverageRecorder implements ExecutionListener {
+
+    private final int[] branchBase;
+    private final int[] branchOutcomes;
+    final long[] lines;
+    final long[] branches;
+
+    CoverageRecorder(int[] branchBase, int[] branchOutcomes, int lineWords, int branchWords) {
+        this.branchBase = branchBase;
+        this.branchOutcomes = branchOutcomes;
+        this.lines = new long[lineWords];
+        this.branches = new long[branchWords];
+    }
+
+    @Override
+    public void statementEnter(int line) {
+        lines[line >>> 6] |= 1L << line;
+    }
+
+    @Override
+    public void branch(int line, int outcome) {
+        if (outcome < branchOutcomes[line]) {
+            int slot = branchBase[line] + outcome;
+            branches[slot >>> 6] |= 1L << slot;
+        }
+    }
+}
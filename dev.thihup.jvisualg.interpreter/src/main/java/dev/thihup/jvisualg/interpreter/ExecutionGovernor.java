@@ -0,0 +1,148 @@
+package dev.thihup.jvisualg.interpreter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class ExecutionGovernor {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    // Reading the thread CPU clock costs much more than running a node, so only do it every few polls
+    private static final int CLOCK_POLL_INTERVAL = 1024;
+
+    private long stepLimit = Long.MAX_VALUE;
+    private Duration cpuTimeLimit = Duration.ZERO;
+    private long arrayAllocationLimit = Long.MAX_VALUE;
+    private long outputLimit = Long.MAX_VALUE;
+
+    long steps;
+    private long arrayElements;
+    private long outputLength;
+    private int pollsUntilClock;
+    private long clockStart;
+    @Nullable
+    private SharedBudget shared;
+    private long sharedSteps;
+
+    // What the workers of one parallel loop have used together, starting from what the parent had used.
+    // Workers add their steps at every poll, so all of them stop once the parent's limit is reached.
+    static final class SharedBudget {
+        private final AtomicLong steps;
+        private final AtomicLong arrayElements;
+
+        SharedBudget(ExecutionGovernor parent) {
+            steps = new AtomicLong(parent.steps);
+            arrayElements = new AtomicLong(parent.arrayElements);
+        }
+    }
+
+    void setStepLimit(long stepLimit) {
+        this.stepLimit = stepLimit;
+    }
+
+    void setCpuTimeLimit(Duration cpuTimeLimit) {
+        this.cpuTimeLimit = cpuTimeLimit;
+    }
+
+    void setArrayAllocationLimit(long arrayAllocationLimit) {
+        this.arrayAllocationLimit = arrayAllocationLimit;
+    }
+
+    void setOutputLimit(long outputLimit) {
+        this.outputLimit = outputLimit;
+    }
+
+    void start() {
+        steps = 0;
+        arrayElements = 0;
+        outputLength = 0;
+        pollsUntilClock = CLOCK_POLL_INTERVAL;
+        if (!cpuTimeLimit.isZero()) {
+            // Virtual threads report no CPU time, and a limit measured in wall time would be a different limit
+            long cpuTime = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+            if (cpuTime < 0) {
+                throw new IllegalStateException("A CPU time limit needs a thread that reports CPU time, such as a platform thread");
+            }
+            clockStart = cpuTime;
+        }
+    }
+
+    // Array kernels skip the per-node accounting and are charged for all their iterations at once
+    boolean canAfford(long steps) {
+        long used = shared == null ? this.steps : shared.steps.get() + this.steps - sharedSteps;
+        return used + steps <= stepLimit;
+    }
+
+    void charge(long steps) {
+        this.steps += steps;
+    }
+
+    boolean hasCpuTimeLimit() {
+        return !cpuTimeLimit.isZero();
+    }
+
+    // For work done on another thread on behalf of the parent: bounded by the parent's limits through
+    // the budget all workers share, and added back to the parent with join
+    void startWithin(ExecutionGovernor parent, SharedBudget budget) {
+        stepLimit = parent.stepLimit;
+        arrayAllocationLimit = parent.arrayAllocationLimit;
+        start();
+        shared = budget;
+        sharedSteps = 0;
+    }
+
+    void join(ExecutionGovernor child) {
+        steps += child.steps;
+        arrayElements += child.arrayElements;
+    }
+
+    // A child that ran out of budget is reported against the limits of its parent
+    void checkLimits() {
+        if (steps > stepLimit) {
+            throw new LimitExceededException.Steps(stepLimit);
+        }
+        if (arrayElements > arrayAllocationLimit) {
+            throw new LimitExceededException.ArrayAllocation(arrayAllocationLimit);
+        }
+    }
+
+    // Called on loop back-edges and subprogram calls
+    void poll() {
+        long used = steps;
+        if (shared != null) {
+            used = shared.steps.addAndGet(steps - sharedSteps);
+            sharedSteps = steps;
+        }
+        if (used > stepLimit) {
+            throw new LimitExceededException.Steps(stepLimit);
+        }
+        if (!cpuTimeLimit.isZero() && --pollsUntilClock <= 0) {
+            pollsUntilClock = CLOCK_POLL_INTERVAL;
+            if (THREAD_MX_BEAN.getCurrentThreadCpuTime() - clockStart > cpuTimeLimit.toNanos()) {
+                throw new LimitExceededException.CpuTime(cpuTimeLimit);
+            }
+        }
+    }
+
+    void allocateArray(long elements) {
+        arrayElements += elements;
+        long used = shared == null ? arrayElements : shared.arrayElements.addAndGet(elements);
+        if (used > arrayAllocationLimit) {
+            throw new LimitExceededException.ArrayAllocation(arrayAllocationLimit);
+        }
+    }
+
+    long outputLength() {
+        return outputLength;
+    }
+
+    void output(int length) {
+        outputLength += length;
+        if (outputLength > outputLimit) {
+            throw new LimitExceededException.Output(outputLimit);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.Set;
+
+// Everything a run did to its frames since the oldest kept checkpoint. Positions count events from
+// the start of the run, so they stay valid when the oldest events are dropped with their checkpoint.
+// The state before any statement is the nearest earlier checkpoint with the writes after it applied.
+// Vetores and registros are shared by reference between names (arguments, a <- b), so they are tracked
+// by identity: element and field writes name the object written, and copies keep the sharing.
+final class ExecutionHistory {
+
+    // A copy of a written value and, for vetores and registros, the copy of each one inside it by the
+    // live object, so later writes through any name that shares them reach the copy
+    private record Value(Object live, Object copy, Map<Object, Object> copies) {
+    }
+
+    private sealed interface Event {
+        record Push(String frame) implements Event {
+        }
+
+        record Pop(String frame) implements Event {
+        }
+
+        record Write(String frame, String name, Value value) implements Event {
+        }
+
+        // The target is the live vetor, or row of a matrix, known only by identity
+        record WriteElement(Object[] target, int index, Value value) implements Event {
+        }
+
+        record WriteField(UserDefinedValue target, String field, Value value) implements Event {
+        }
+
+        record Statement(int line) implements Event {
+        }
+    }
+
+    // Frames and values are copies that nothing mutates, so later checkpoints can share them; copies
+    // maps every live vetor and registro in the frames to its copy
+    private record Checkpoint(long position, SequencedMap<String, Map<String, Object>> frames, Map<Object, Object> copies) {
+    }
+
+    private final int stepsPerCheckpoint;
+    private final int capacity;
+    private final List<Event> events = new ArrayList<>();
+    private long first;
+    private final ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<>();
+    private int stepsSinceCheckpoint;
+
+    // Live frames by identity, and the vetores written since the last checkpoint, which cannot reuse its copies
+    private final Map<Map<String, Object>, String> frameNames = new IdentityHashMap<>();
+    private final Set<Object> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    ExecutionHistory(int stepsPerCheckpoint, int capacity) {
+        this.stepsPerCheckpoint = stepsPerCheckpoint;
+        this.capacity = capacity;
+        checkpoints.add(new Checkpoint(0, new LinkedHashMap<>(), Map.of()));
+    }
+
+    void push(String frame, Map<String, Object> variables) {
+        frameNames.put(variables, frame);
+        events.add(new Event.Push(frame));
+    }
+
+    void pop(String frame, Map<String, Object> variables) {
+        frameNames.remove(variables);
+        events.add(new Event.Pop(frame));
+    }
+
+    void write(Map<String, Object> variables, String name) {
+        String frame = frameNames.get(variables);
+        if (frame != null) {
+            events.add(new Event.Write(frame, name, snapshot(variables.get(name))));
+        }
+    }
+
+    void writeElement(Object[] target, int index, Object value) {
+        dirty.add(target);
+        events.add(new Event.WriteElement(target, index, snapshot(value)));
+    }
+
+    void writeField(UserDefinedValue target, String field, Object value) {
+        events.add(new Event.WriteField(target, field, snapshot(value)));
+    }
+
+    void statement(int line, SequencedMap<String, Map<String, Object>> stack) {
+        if (++stepsSinceCheckpoint > stepsPerCheckpoint) {
+            checkpoint(stack);
+            stepsSinceCheckpoint = 1;
+        }
+        events.add(new Event.Statement(line));
+    }
+
+    private void checkpoint(SequencedMap<String, Map<String, Object>> stack) {
+        Map<Object, Object> previous = checkpoints.getLast().copies();
+        Map<Object, Object> copies = new IdentityHashMap<>();
+        SequencedMap<String, Map<String, Object>> frames = new LinkedHashMap<>();
+        stack.forEach((frame, variables) -> {
+            Map<String, Object> frameCopy = new HashMap<>();
+            variables.forEach((name, value) -> frameCopy.put(name, copy(value, copies, previous)));
+            frames.put(frame, frameCopy);
+        });
+        checkpoints.add(new Checkpoint(present(), frames, copies));
+        dirty.clear();
+
+        if (checkpoints.size() > capacity) {
+            checkpoints.removeFirst();
+            long oldest = checkpoints.getFirst().position();
+            events.subList(0, (int) (oldest - first)).clear();
+            first = oldest;
+        }
+    }
+
+    long present() {
+        return first + events.size();
+    }
+
+    long lastStatement() {
+        return previousStatement(present(), -1);
+    }
+
+    // -1 matches any line; the result is -1 when no kept statement qualifies
+    long previousStatement(long before, int line) {
+        for (long position = Math.min(before, present()) - 1; position >= first; position--) {
+            if (events.get((int) (position - first)) instanceof Event.Statement(int statementLine)
+                    && (line == -1 || statementLine == line)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    long nextStatement(long after) {
+        for (long position = Math.max(after + 1, first); position < present(); position++) {
+            if (events.get((int) (position - first)) instanceof Event.Statement) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // The frames as they were when the statement at this position was about to run
+    ProgramState stateAt(long position) {
+        Checkpoint checkpoint = checkpoints.getFirst();
+        for (Checkpoint candidate : checkpoints) {
+            if (candidate.position() <= position) {
+                checkpoint = candidate;
+            }
+        }
+        // Copied again so replaying never touches the checkpoint; live maps each live object to its new copy
+        Map<Object, Object> fresh = new IdentityHashMap<>();
+        SequencedMap<String, Map<String, Object>> frames = new LinkedHashMap<>();
+        checkpoint.frames().forEach((frame, variables) -> {
+            Map<String, Object> copies = new HashMap<>();
+            variables.forEach((name, value) -> copies.put(name, copy(value, fresh, Map.of())));
+            frames.put(frame, copies);
+        });
+        Map<Object, Object> live = new IdentityHashMap<>();
+        checkpoint.copies().forEach((object, copy) -> live.put(object, fresh.get(copy)));
+
+        for (long replayed = checkpoint.position(); replayed < position; replayed++) {
+            switch (events.get((int) (replayed - first))) {
+                case Event.Push(String frame) -> frames.put(frame, new HashMap<>());
+                case Event.Pop(String frame) -> frames.remove(frame);
+                case Event.Write(String frame, String name, Value value) -> frames.get(frame).put(name, resolve(value, live));
+                // Objects no frame could reach before this point are not in any state either
+                case Event.WriteElement(Object[] target, int index, Value value) -> {
+                    if (live.get(target) instanceof Object[] array) {
+                        array[index] = resolve(value, live);
+                    }
+                }
+                case Event.WriteField(UserDefinedValue target, String field, Value value) -> {
+                    if (live.get(target) instanceof UserDefinedValue record) {
+                        record.values().put(field, resolve(value, live));
+                    }
+                }
+                case Event.Statement _ -> {
+                }
+            }
+        }
+        int line = events.get((int) (position - first)) instanceof Event.Statement(int statementLine) ? statementLine : 0;
+        return new ProgramState(line - 1, frames);
+    }
+
+    // A value already replayed is the same object again, so the names sharing it stay shared
+    private Object resolve(Value value, Map<Object, Object> live) {
+        if (value.copies().isEmpty()) {
+            return value.copy();
+        }
+        Object known = live.get(value.live());
+        if (known != null) {
+            return known;
+        }
+        Map<Object, Object> fresh = new IdentityHashMap<>();
+        Object copy = copy(value.copy(), fresh, Map.of());
+        value.copies().forEach((object, eventCopy) -> live.putIfAbsent(object, fresh.get(eventCopy)));
+        return copy;
+    }
+
+    private Value snapshot(Object value) {
+        if (!isShared(value)) {
+            return new Value(value, value, Map.of());
+        }
+        Map<Object, Object> copies = new IdentityHashMap<>();
+        return new Value(value, copy(value, copies, Map.of()), copies);
+    }
+
+    private static boolean isShared(Object value) {
+        return value instanceof Object[] || value instanceof UserDefinedValue;
+    }
+
+    // Deep copies that keep objects shared: copies maps each one copied so far to its copy. A vetor of
+    // plain values that nothing wrote since the last checkpoint reuses that checkpoint's copy.
+    private Object copy(Object value, Map<Object, Object> copies, Map<Object, Object> reusable) {
+        if (!isShared(value)) {
+            return value;
+        }
+        Object known = copies.get(value);
+        if (known != null) {
+            return known;
+        }
+        Object copy = switch (value) {
+            case Object[] array when reusable.get(array) instanceof Object[] previous && !dirty.contains(array)
+                    && Arrays.stream(array).noneMatch(ExecutionHistory::isShared) -> previous;
+            case Object[] array -> {
+                Object[] elements = array.clone();
+                copies.put(array, elements);
+                for (int i = 0; i < elements.length; i++) {
+                    elements[i] = copy(elements[i], copies, reusable);
+                }
+                yield elements;
+            }
+            case UserDefinedValue(UserDefinedType type, Map<String, Object> values) -> {
+                Map<String, Object> fields = new HashMap<>();
+                UserDefinedValue record = new UserDefinedValue(type, fields);
+                copies.put(value, record);
+                values.forEach((name, field) -> fields.put(name, copy(field, copies, reusable)));
+                yield record;
+            }
+            default -> value;
+        };
+        copies.put(value, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,32 @@
+package dev.thihup.jvisualg.interpreter;
+
+// Callbacks run on the interpreter thread. assign, read and write happen between the
+// statementEnter and statementExit of the statement that caused them.
+public interface ExecutionListener {
+
+    default void statementEnter(int line) {
+    }
+
+    default void statementExit(int line) {
+    }
+
+    default void subprogramEnter(String name, int line) {
+    }
+
+    default void subprogramExit(String name) {
+    }
+
+    // For arrays and registros the variable is the name of the whole array or registro
+    default void assign(String variable, Object value) {
+    }
+
+    default void read(String variable, Object value) {
+    }
+
+    default void write(String text) {
+    }
+
+    // Which way a se, escolha or loop went; the outcomes are numbered as in Coverage.branches()
+    default void branch(int line, int outcome) {
+    }
+}
@@ -1,12 +1,33 @@
 package dev.thihup.jvisualg.interpreter;
 
+import org.jspecify.annotations.Nullable;
+
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
-public record IO(Function<InputRequestValue, CompletableFuture<Optional<InputValue>>> input, Consumer<OutputEvent> output) {
-
+// Interactive front ends answer input asynchronously; batch runs can hand over a source the
+// interpreter pulls from directly. input() works for both, so callers of it see no difference.
+public record IO(Function<InputRequestValue, CompletableFuture<Optional<InputValue>>> input,
+                 Consumer<OutputEvent> output,
+                 @Nullable InputSource source) {
 
+    public IO(Function<InputRequestValue, CompletableFuture<Optional<InputValue>>> input, Consumer<OutputEvent> output) {
+        this(input, output, null);
+    }
 
+    public static IO synchronous(InputSource source, Consumer<OutputEvent> output) {
+        return new IO(request -> {
+            if (!source.hasNext()) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            return CompletableFuture.completedFuture(Optional.of(switch (request.type()) {
+                case INTEIRO -> new InputValue.InteiroValue(source.nextInteiro());
+                case REAL -> new InputValue.RealValue(source.nextReal());
+                case LOGICO -> new InputValue.LogicoValue(source.nextLogico());
+                case CARACTER -> new InputValue.CaracterValue(source.nextCaracter());
+            }));
+        }, output, source);
+    }
 }
@@ -0,0 +1,24 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.List;
+
+// Pull-based input for runs whose input is known up front. Values are produced on the interpreter
+// thread as primitives, without the future, Optional and InputValue of the interactive contract.
+public interface InputSource {
+
+    // Once this is false, the next leia fails like an interactive input that was never answered
+    boolean hasNext();
+
+    int nextInteiro();
+
+    double nextReal();
+
+    boolean nextLogico();
+
+    String nextCaracter();
+
+    // One value per line, parsed the way students type them: surrounding blanks and a decimal comma are accepted
+    static InputSource ofLines(List<String> lines) {
+        return new LineInputSource(lines);
+    }
+}
@@ -1,11 +1,21 @@
 package dev.thihup.jvisualg.interpreter;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.file.Paths;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
 sealed interface InputState {
 
@@ -19,9 +29,7 @@ sealed interface InputState {
         @Override
         public InputValue generateValue(InputRequestValue requestValue) {
             return switch (requestValue.type()) {
-                case CARACTER -> new InputValue.CaracterValue(random.ints(65, 91)
-                        .limit(5)
-                        .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString());
+                case CARACTER -> new InputValue.CaracterValue(randomLetters());
                 case LOGICO -> new InputValue.LogicoValue(random.nextBoolean());
                 case REAL -> new InputValue.RealValue(generateRandomDouble(this));
                 case INTEIRO -> new InputValue.InteiroValue(random.nextInt(start, end));
@@ -29,6 +37,15 @@ sealed interface InputState {
 
         }
 
+        // Same draws as random.ints('A', 'Z' + 1).limit(5), without a stream and collector per value
+        private String randomLetters() {
+            char[] letters = new char[5];
+            for (int i = 0; i < letters.length; i++) {
+                letters[i] = (char) random.nextInt('A', 'Z' + 1);
+            }
+            return new String(letters);
+        }
+
         private double generateRandomDouble(Aleatorio aleatorio) {
             double v = random.nextDouble(aleatorio.start(), aleatorio.end());
 
@@ -49,24 +66,242 @@ sealed interface InputState {
         }
     }
 
-    final class Arquivo implements InputState {
+    // The interpreter calls read directly; generateValue is only for the arquivo fallback
+    record Pull(InputSource source) implements InputState {
+        @Override
+        public InputValue generateValue(InputRequestValue requestValue) {
+            return switch (read(requestValue.type())) {
+                case Integer value -> new InputValue.InteiroValue(value);
+                case Double value -> new InputValue.RealValue(value);
+                case Boolean value -> new InputValue.LogicoValue(value);
+                case String value -> new InputValue.CaracterValue(value);
+                default -> throw new IllegalStateException();
+            };
+        }
+
+        Object read(InputRequestValue.Type type) {
+            if (!source.hasNext()) {
+                throw new NoSuchElementException("No value present");
+            }
+            return switch (type) {
+                case INTEIRO -> source.nextInteiro();
+                case REAL -> source.nextReal();
+                case LOGICO -> source.nextLogico();
+                case CARACTER -> source.nextCaracter();
+            };
+        }
+    }
+
+    // Reads one value per line straight from a buffered channel: numbers and logicos are parsed
+    // from the bytes, only caracter values and unusual numbers become a String
+    final class Arquivo implements InputState, Closeable {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private static final byte[] VERDADEIRO = "VERDADEIRO".getBytes(StandardCharsets.US_ASCII);
+        // Every power of ten up to 10^22 is exact, so mantissa / 10^n rounds exactly like Double.parseDouble
+        private static final double[] POWERS_OF_TEN = IntStream.rangeClosed(0, 22).mapToDouble(n -> Double.parseDouble("1e" + n)).toArray();
+        private static final long MAX_EXACT_MANTISSA = 1L << 53;
 
-        private final Scanner scanner;
+        private final FileChannel channel;
+        private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder();
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean endOfFile;
+        private boolean skipLineFeed;
+        private boolean byteOrderMark;
+        private int lineStart;
+        private int lineEnd;
 
         public Arquivo(String filePath) throws IOException {
-            scanner = new Scanner(Paths.get(filePath));
+            channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+            try {
+                fill();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            byteOrderMark = limit >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF;
+            if (byteOrderMark) {
+                position = 3;
+            }
         }
 
         @Override
         public InputValue generateValue(InputRequestValue requestValue) {
-            String value = scanner.nextLine();
+            nextLine();
             return switch (requestValue.type()) {
-                case CARACTER -> new InputValue.CaracterValue(value);
-                case LOGICO -> new InputValue.LogicoValue(value.equalsIgnoreCase("VERDADEIRO"));
-                case REAL -> new InputValue.RealValue(Double.parseDouble(value));
-                case INTEIRO -> new InputValue.InteiroValue(Integer.parseInt(value));
+                case CARACTER -> new InputValue.CaracterValue(decodeLine());
+                case LOGICO -> new InputValue.LogicoValue(lineEqualsIgnoreCase(VERDADEIRO));
+                case REAL -> new InputValue.RealValue(parseReal());
+                case INTEIRO -> new InputValue.InteiroValue(parseInteiro());
             };
         }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        // Accepts \n, \r\n and \r like Scanner.nextLine, and a last line without a terminator
+        private void nextLine() {
+            try {
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (position == limit && !endOfFile) {
+                        fill();
+                    }
+                    if (position < limit && buffer[position] == '\n') {
+                        position++;
+                    }
+                }
+                int scan = position;
+                while (true) {
+                    for (; scan < limit; scan++) {
+                        byte current = buffer[scan];
+                        if (current == '\n' || current == '\r') {
+                            lineStart = position;
+                            lineEnd = scan;
+                            position = scan + 1;
+                            skipLineFeed = current == '\r';
+                            return;
+                        }
+                    }
+                    if (endOfFile) {
+                        if (position == limit) {
+                            throw new NoSuchElementException("No line found");
+                        }
+                        lineStart = position;
+                        lineEnd = limit;
+                        position = limit;
+                        return;
+                    }
+                    int scanned = scan - position;
+                    fill();
+                    scan = position + scanned;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void fill() throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+            if (read < 0) {
+                endOfFile = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        private void trimLine() {
+            while (lineStart < lineEnd && isBlank(buffer[lineStart])) {
+                lineStart++;
+            }
+            while (lineEnd > lineStart && isBlank(buffer[lineEnd - 1])) {
+                lineEnd--;
+            }
+        }
+
+        private static boolean isBlank(byte value) {
+            return value == ' ' || value == '\t';
+        }
+
+        private boolean lineEqualsIgnoreCase(byte[] expected) {
+            trimLine();
+            if (lineEnd - lineStart != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if ((buffer[lineStart + i] & ~0x20) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int parseInteiro() {
+            trimLine();
+            int index = lineStart;
+            boolean negative = index < lineEnd && buffer[index] == '-';
+            if (negative || index < lineEnd && buffer[index] == '+') {
+                index++;
+            }
+            long value = 0;
+            int digits = 0;
+            for (; index < lineEnd && digits <= 10; index++, digits++) {
+                int digit = buffer[index] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            value = negative ? -value : value;
+            if (index != lineEnd || digits == 0 || value != (int) value) {
+                // Let the JDK report the error exactly as it always has
+                return Integer.parseInt(decodeLine());
+            }
+            return (int) value;
+        }
+
+        private double parseReal() {
+            trimLine();
+            int index = lineStart;
+            boolean negative = index < lineEnd && buffer[index] == '-';
+            if (negative || index < lineEnd && buffer[index] == '+') {
+                index++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int decimals = -1;
+            for (; index < lineEnd; index++) {
+                byte current = buffer[index];
+                if (current == '.' && decimals < 0) {
+                    decimals = 0;
+                    continue;
+                }
+                int digit = current - '0';
+                if (digit < 0 || digit > 9 || mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    break;
+                }
+                mantissa = mantissa * 10 + digit;
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            }
+            if (index != lineEnd || digits == 0 || decimals >= POWERS_OF_TEN.length) {
+                // Exponents, long mantissas and malformed values take the slow, exact path
+                return Double.parseDouble(decodeLine());
+            }
+            double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+            return negative ? -value : value;
+        }
+
+        // Lines are UTF-8 when they decode as such, ISO-8859-1 otherwise; pure ASCII is both
+        private String decodeLine() {
+            int length = lineEnd - lineStart;
+            boolean ascii = true;
+            for (int i = lineStart; i < lineEnd && ascii; i++) {
+                ascii = buffer[i] >= 0;
+            }
+            if (ascii) {
+                return new String(buffer, lineStart, length, StandardCharsets.ISO_8859_1);
+            }
+            try {
+                return utf8.decode(ByteBuffer.wrap(buffer, lineStart, length)).toString();
+            } catch (CharacterCodingException e) {
+                return new String(buffer, lineStart, length, byteOrderMark ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            }
+        }
     }
 }
 
@@ -1,7 +1,6 @@
 package dev.thihup.jvisualg.interpreter;
 
-import dev.thihup.jvisualg.frontend.ASTResult;
-import dev.thihup.jvisualg.frontend.VisualgParser;
+import dev.thihup.jvisualg.frontend.BooleanEvaluation;
 import dev.thihup.jvisualg.frontend.node.Location;
 import dev.thihup.jvisualg.frontend.node.Node;
 import dev.thihup.jvisualg.interpreter.TypeException.InvalidOperand.Operator;
@@ -14,41 +13,107 @@ import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.math.RoundingMode;
 import java.text.NumberFormat;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @NullMarked
 public class Interpreter {
 
+    private static final ArrayKernels ARRAY_KERNELS = ArrayKernels.best();
+
     private final SequencedMap<String, Map<String, Object>> stack = new LinkedHashMap<>();
     private final Map<String, Node.FunctionDeclarationNode> functions = new LinkedHashMap<>();
     private final Map<String, Node.ProcedureDeclarationNode> procedures = new LinkedHashMap<>();
     private final Map<String, UserDefinedType> userDefinedTypeMap = new LinkedHashMap<>();
-    private final RandomGenerator random = RandomGenerator.getDefault();
+    // Every run splits its own generator from this one, so runs never share random state
+    private RandomGenerator.SplittableGenerator randomSource = new SplittableRandom();
+    private RandomGenerator random = randomSource;
+    // rand and randi bound once per run to what they draw from: random itself, or a recording or replaying view of it
+    private Map<String, MethodHandle> randomFunctions = bindRandomFunctions(random);
     private final IO io;
     @Nullable
     private final Consumer<ProgramState> debuggerCallback;
     private final List<Integer> breakpoints = new ArrayList<>();
-    private final InputState.ReadInput inputFromIO;
+    // Immutable snapshots replaced as a whole when the debugger adds or removes a watchpoint, so the
+    // running program reads them without locking. Null unless something is watched, so writes to other
+    // variables cost a single field check
+    private volatile List<Watchpoint> watchpoints = List.of();
+    @Nullable
+    private volatile Set<String> watchedVariables;
+    private final InputState inputFromIO;
     private final CyclicBarrier lock = new CyclicBarrier(2);
 
     private volatile InterpreterState state = InterpreterState.NotStarted.INSTANCE;
     private InputState inputState;
+    private InputState.@Nullable Arquivo arquivo;
     private boolean eco = false;
-    private TreeMap<Integer, Node> lineToAstNode;
-    private Thread thread;
+    private BooleanEvaluation booleanEvaluation = BooleanEvaluation.SHORT_CIRCUIT;
+    private int memoizationCapacity = 0;
+    @Nullable
+    private MemoTable memoTable;
+    private Set<String> pureFunctions = Set.of();
+    private boolean parallelLoops;
+    private int parallelLoopThreshold = 10_000;
+    // Loops of the current run that went to the pool or to an array kernel; they tell tests which path was taken
+    private int parallelLoopsRun;
+    private int arrayLoopsRun;
+    private final Map<Node.ForCommandNode, Optional<LoopDependenceAnalysis.IndependentLoop>> independentLoops = new IdentityHashMap<>();
+    private LoopVectorization loopVectorization = LoopVectorization.OFF;
+    private final Map<Node.ForCommandNode, Optional<ArrayLoop>> arrayLoops = new IdentityHashMap<>();
+    private final ExecutionGovernor governor = new ExecutionGovernor();
+    private boolean profiling;
+    @Nullable
+    private LineProfiler profiler;
+    private final List<ExecutionListener> executionListeners = new ArrayList<>();
+    // Null unless someone listens, so the hooks cost a single field check otherwise
+    @Nullable
+    private ExecutionListener listener;
+    @Nullable
+    private Coverage coverage;
+    @Nullable
+    private CoverageRecorder coverageRecorder;
+    private Duration samplingInterval = Duration.ZERO;
+    @Nullable
+    private SamplingProfiler samplingProfiler;
+    private SampledProfile sampledProfile = SampledProfile.EMPTY;
+    private NavigableMap<Integer, Node> lineToAstNode = Collections.emptyNavigableMap();
+    private volatile Thread thread;
+    private String programName = "";
+    private boolean recording;
+    @Nullable
+    private RunRecorder recorder;
+    private RunRecording lastRecording = RunRecording.EMPTY;
+    @Nullable
+    private RunRecording replay;
+    private int replaySkipToCheckpoint;
+    @Nullable
+    private RunReplayer replayer;
+    private int stepsPerCheckpoint;
+    private int checkpoints;
+    @Nullable
+    private ExecutionHistory history;
+    // Where the debugger paused for real, and which earlier statement it shows; -1 shows the pause itself
+    @Nullable
+    private ProgramState pausedState;
+    private long pausedPosition;
+    private long historyCursor = -1;
 
 
     public Interpreter(IO io, @Nullable Consumer<ProgramState> debuggerCallback) {
         this.io = io;
         this.debuggerCallback = debuggerCallback;
-        this.inputFromIO = new InputState.ReadInput(io);
+        this.inputFromIO = io.source() != null ? new InputState.Pull(io.source()) : new InputState.ReadInput(io);
         this.inputState = inputFromIO;
     }
 
@@ -64,6 +129,188 @@ public class Interpreter {
         this.breakpoints.remove((Integer) location);
     }
 
+    public void addWatchpoint(Watchpoint watchpoint) {
+        List<Watchpoint> updated = new ArrayList<>(watchpoints);
+        updated.add(watchpoint);
+        updateWatchedVariables(updated);
+    }
+
+    public void removeWatchpoint(Watchpoint watchpoint) {
+        List<Watchpoint> updated = new ArrayList<>(watchpoints);
+        updated.remove(watchpoint);
+        updateWatchedVariables(updated);
+    }
+
+    // The list first: a write that sees the new variables then finds their watchpoints
+    private void updateWatchedVariables(List<Watchpoint> updated) {
+        watchpoints = List.copyOf(updated);
+        watchedVariables = updated.isEmpty()
+                ? null
+                : updated.stream().map(Watchpoint::variable).collect(Collectors.toUnmodifiableSet());
+    }
+
+    public void setBooleanEvaluation(BooleanEvaluation booleanEvaluation) {
+        this.booleanEvaluation = booleanEvaluation;
+    }
+
+    public void setMemoizationCapacity(int memoizationCapacity) {
+        if (memoizationCapacity < 0) {
+            throw new IllegalArgumentException("Memoization capacity must not be negative: " + memoizationCapacity);
+        }
+        this.memoizationCapacity = memoizationCapacity;
+    }
+
+    // Para loops with at least the threshold of iterations run on the common ForkJoinPool when
+    // their iterations provably do not depend on each other, and sequentially otherwise
+    public void setParallelLoops(boolean parallelLoops) {
+        this.parallelLoops = parallelLoops;
+    }
+
+    public void setParallelLoopThreshold(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Parallel loop threshold must be positive: " + iterations);
+        }
+        this.parallelLoopThreshold = iterations;
+    }
+
+    public void setLoopVectorization(LoopVectorization loopVectorization) {
+        this.loopVectorization = Objects.requireNonNull(loopVectorization);
+    }
+
+    public void setStepLimit(long stepLimit) {
+        if (stepLimit <= 0) {
+            throw new IllegalArgumentException("Step limit must be positive: " + stepLimit);
+        }
+        governor.setStepLimit(stepLimit);
+    }
+
+    public void setCpuTimeLimit(Duration cpuTimeLimit) {
+        if (cpuTimeLimit.isNegative() || cpuTimeLimit.isZero()) {
+            throw new IllegalArgumentException("CPU time limit must be positive: " + cpuTimeLimit);
+        }
+        governor.setCpuTimeLimit(cpuTimeLimit);
+    }
+
+    public void setArrayAllocationLimit(long elements) {
+        if (elements <= 0) {
+            throw new IllegalArgumentException("Array allocation limit must be positive: " + elements);
+        }
+        governor.setArrayAllocationLimit(elements);
+    }
+
+    public void setOutputLimit(long characters) {
+        if (characters <= 0) {
+            throw new IllegalArgumentException("Output limit must be positive: " + characters);
+        }
+        governor.setOutputLimit(characters);
+    }
+
+    public void addExecutionListener(ExecutionListener executionListener) {
+        executionListeners.add(Objects.requireNonNull(executionListener));
+        updateListener();
+    }
+
+    public void removeExecutionListener(ExecutionListener executionListener) {
+        executionListeners.remove(executionListener);
+        updateListener();
+    }
+
+    private void updateListener() {
+        List<ExecutionListener> all = new ArrayList<>();
+        if (profiler != null) {
+            all.add(profiler);
+        }
+        if (coverageRecorder != null) {
+            all.add(coverageRecorder);
+        }
+        if (samplingProfiler != null) {
+            all.add(samplingProfiler);
+        }
+        all.addAll(executionListeners);
+        listener = switch (all.size()) {
+            case 0 -> null;
+            case 1 -> all.getFirst();
+            default -> new CompositeExecutionListener(all);
+        };
+    }
+
+    public void setCoverage(@Nullable Coverage coverage) {
+        this.coverage = coverage;
+    }
+
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    // Zero turns sampling off
+    public void setSamplingInterval(Duration samplingInterval) {
+        if (samplingInterval.isNegative()) {
+            throw new IllegalArgumentException("Sampling interval must not be negative: " + samplingInterval);
+        }
+        this.samplingInterval = samplingInterval;
+    }
+
+    public void setRandomSeed(long seed) {
+        setRandomSource(new SplittableRandom(seed));
+    }
+
+    // The n-th run draws from the n-th split of the source, so a seeded source makes every run reproducible
+    public void setRandomSource(RandomGenerator.SplittableGenerator randomSource) {
+        this.randomSource = randomSource;
+    }
+
+    // Keeps the frames of the last checkpoints and the writes between them, so a paused run can step back
+    public void setTimeTravel(int stepsPerCheckpoint, int checkpoints) {
+        if (stepsPerCheckpoint < 0 || checkpoints < 0) {
+            throw new IllegalArgumentException("Steps per checkpoint and checkpoints must not be negative");
+        }
+        this.stepsPerCheckpoint = stepsPerCheckpoint;
+        this.checkpoints = checkpoints;
+    }
+
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public RunRecording recording() {
+        return lastRecording;
+    }
+
+    // Runs take input and random draws from the recording instead of the IO. With a checkpoint, the run
+    // holds back its output and ignores breakpoints until that escreva, then pauses on the next line.
+    public void setReplay(@Nullable RunRecording replay, int skipToCheckpoint) {
+        int checkpoints = replay == null ? 0 : replay.checkpoints().size();
+        if (skipToCheckpoint < 0 || skipToCheckpoint > checkpoints) {
+            throw new IllegalArgumentException("Checkpoint must be between 0 and " + checkpoints + ": " + skipToCheckpoint);
+        }
+        this.replay = replay;
+        this.replaySkipToCheckpoint = skipToCheckpoint;
+    }
+
+    public SampledProfile sampledProfile() {
+        return sampledProfile;
+    }
+
+    public Profile profile() {
+        return profiler == null ? Profile.EMPTY : profiler.profile();
+    }
+
+    public long steps() {
+        return governor.steps;
+    }
+
+    int parallelLoopsRun() {
+        return parallelLoopsRun;
+    }
+
+    int arrayLoopsRun() {
+        return arrayLoopsRun;
+    }
+
+    public List<MemoizationStatistics> memoizationStatistics() {
+        return memoTable == null ? List.of() : memoTable.statistics();
+    }
+
     public void reset() {
         stack.clear();
         functions.clear();
@@ -82,41 +329,132 @@ public class Interpreter {
         runWithState(code, InterpreterState.Running.INSTANCE);
     }
 
+    public void run(PreparedProgram program) {
+        runWithState(program, InterpreterState.Running.INSTANCE);
+    }
+
+    public static InterpreterState run(PreparedProgram program, IO io) {
+        Interpreter interpreter = new Interpreter(io);
+        interpreter.run(program);
+        return interpreter.state();
+    }
+
     public void runWithState(String code, InterpreterState state) {
         thread = Thread.currentThread();
-        startWithState(code, state);
+        startWithState(() -> PreparedProgram.prepare(code), state);
     }
 
-    private void startWithState(String code, InterpreterState state) {
+    public void runWithState(PreparedProgram program, InterpreterState state) {
+        thread = Thread.currentThread();
+        startWithState(() -> program, state);
+    }
+
+    private void startWithState(Supplier<PreparedProgram> programSupplier, InterpreterState state) {
+        InterpreterEvents.ProgramRun event = new InterpreterEvents.ProgramRun();
+        event.begin();
+        PreparedProgram program = null;
         try {
             this.state = state;
-            ASTResult parse = VisualgParser.parse(code);
-            Optional<Node> optionalNode = parse.node();
-            if (optionalNode.isPresent()) {
-                Node node = optionalNode.get();
-                lineToAstNode = node.visitChildren()
-                        .collect(Collectors.toMap(node2 -> node2.location().orElse(Location.EMPTY).startLine(),
-                                Function.identity(), (a, b) -> a, TreeMap::new));
-
-                this.run(node);
-            } else {
-                failParsing(parse);
+            program = programSupplier.get();
+            link(program);
+            this.run(program.root());
+            if (replayer != null) {
+                replayer.finish();
             }
             this.state = InterpreterState.CompletedSuccessfully.INSTANCE;
         } catch (Exception exception) {
             this.state = new InterpreterState.CompletedExceptionally(exception);
         } finally {
+            closeArquivo();
+            if (recorder != null) {
+                lastRecording = recorder.recording();
+                recorder = null;
+            }
+            replayer = null;
+            if (event.shouldCommit()) {
+                event.programName = program == null ? "" : programName;
+                event.line = program == null ? 0 : program.root().location().orElse(Location.EMPTY).startLine();
+                event.steps = governor.steps;
+                event.outcome = switch (this.state) {
+                    case InterpreterState.CompletedExceptionally(Throwable e) -> e.getClass().getSimpleName();
+                    default -> this.state.getClass().getSimpleName();
+                };
+                event.commit();
+            }
+            if (coverage != null && coverageRecorder != null) {
+                coverage.merge(coverageRecorder);
+                coverageRecorder = null;
+            }
+            if (samplingProfiler != null) {
+                samplingProfiler.stop();
+                sampledProfile = samplingProfiler.profile();
+                samplingProfiler = null;
+            }
             if (debuggerCallback != null) {
                 debuggerCallback.accept(new ProgramState(0, stack));
             }
         }
     }
 
-    private static void failParsing(ASTResult parse) {
-        throw new RuntimeException("Error parsing code: " + parse.errors().stream().map(x -> x.location() + ":" + x.message()).collect(Collectors.joining("\n")));
+    private void link(PreparedProgram program) {
+        stack.clear();
+        functions.clear();
+        functions.putAll(program.functions());
+        procedures.clear();
+        procedures.putAll(program.procedures());
+        userDefinedTypeMap.clear();
+        userDefinedTypeMap.putAll(program.userDefinedTypes());
+        lineToAstNode = program.lineToAstNode();
+        programName = program.root() instanceof Node.AlgoritimoNode algoritimoNode ? algoritimoNode.name() : "";
+        inputState = inputFromIO;
+        eco = false;
+        governor.start();
+        parallelLoopsRun = 0;
+        arrayLoopsRun = 0;
+        profiler = profiling
+                ? new LineProfiler(lineToAstNode.isEmpty() ? 0 : lineToAstNode.lastKey(), Stream.concat(functions.keySet().stream(), procedures.keySet().stream()).toList())
+                : null;
+        coverageRecorder = coverage == null ? null : coverage.newRecorder(program);
+        samplingProfiler = samplingInterval.isZero() ? null : new SamplingProfiler(samplingInterval, programName);
+        sampledProfile = SampledProfile.EMPTY;
+        recorder = recording ? new RunRecorder() : null;
+        replayer = replay == null ? null : new RunReplayer(replay, replaySkipToCheckpoint);
+        random = randomSource.split();
+        RandomGenerator drawFrom = replayer != null ? replayer.random() : random;
+        randomFunctions = bindRandomFunctions(recorder != null ? recorder.random(drawFrom) : drawFrom);
+        updateListener();
+        if (samplingProfiler != null) {
+            samplingProfiler.start();
+        }
+        memoTable = memoizationCapacity > 0 ? new MemoTable(memoizationCapacity) : null;
+        pureFunctions = program.pureFunctions();
+        independentLoops.clear();
+        arrayLoops.clear();
+        history = stepsPerCheckpoint > 0 && checkpoints > 0 ? new ExecutionHistory(stepsPerCheckpoint, checkpoints) : null;
+        pausedState = null;
+        historyCursor = -1;
     }
 
     private void run(Node node) {
+        governor.steps++;
+        if (history != null && node instanceof Node.CommandNode) {
+            history.statement(node.location().orElse(Location.EMPTY).startLine(), stack);
+        }
+        ExecutionListener listener = this.listener;
+        if (listener != null && node instanceof Node.CommandNode) {
+            int line = node.location().orElse(Location.EMPTY).startLine();
+            listener.statementEnter(line);
+            try {
+                runNode(node);
+            } finally {
+                listener.statementExit(line);
+            }
+        } else {
+            runNode(node);
+        }
+    }
+
+    private void runNode(Node node) {
         try {
             int currentLineNumber = node.location().orElse(Location.EMPTY).startLine();
             switch (state) {
@@ -135,7 +473,8 @@ public class Interpreter {
                      InterpreterState.NotStarted _ -> {
                 }
                 case InterpreterState.Running _ when breakpoints.contains(currentLineNumber)
-                        && lineToAstNode.containsKey(currentLineNumber) -> {
+                        && lineToAstNode.containsKey(currentLineNumber)
+                        && (replayer == null || !replayer.skipping()) -> {
                     state = new InterpreterState.PausedDebug(currentLineNumber);
                     handleDebugCommand(node);
                 }
@@ -171,7 +510,9 @@ public class Interpreter {
 
     public void stop() {
         state = InterpreterState.ForcedStop.INSTANCE;
-        thread.interrupt();
+        if (thread != null) {
+            thread.interrupt();
+        }
     }
 
     private void runDeclaration(Node.DeclarationNode declarationNode) {
@@ -187,18 +528,18 @@ public class Interpreter {
     }
 
     private void runRegistroDeclaration(Node.RegistroDeclarationNode registroDeclarationNode) {
-        Node.IdNode name = registroDeclarationNode.name();
-
-        Map<String, Node.TypeNode> fields = registroDeclarationNode.variableDeclarationContexts().nodes().stream()
-                .collect(Collectors.toMap(x -> x.name().id(), Node.VariableDeclarationNode::type));
-
-        userDefinedTypeMap.put(name.id(), new UserDefinedType(name.id(), fields));
+        userDefinedTypeMap.put(registroDeclarationNode.name().id(), UserDefinedType.from(registroDeclarationNode));
     }
 
     public void step() {
         try {
             if (state instanceof InterpreterState.PausedDebug e) {
-                if (lock.getNumberWaiting() == 1) {
+                // In the past, stepping walks forward through history until it is back at the pause
+                if (historyCursor != -1 && history != null && lock.getNumberWaiting() == 1) {
+                    long next = history.nextStatement(historyCursor);
+                    historyCursor = next < pausedPosition ? next : -1;
+                    showHistory();
+                } else if (lock.getNumberWaiting() == 1) {
                     lock.await();
                     setNextLineDebug(e);
 
@@ -218,26 +559,75 @@ public class Interpreter {
     public void continueExecution() {
         try {
             if (state instanceof InterpreterState.PausedDebug) {
-                if (lock.getNumberWaiting() == 1) {
+                historyCursor = -1;
+                // Running before the release, or the released run can pause again on its very next node
+                boolean waiting = lock.getNumberWaiting() == 1;
+                state = InterpreterState.Running.INSTANCE;
+                if (waiting) {
                     lock.await();
                 }
-                state = InterpreterState.Running.INSTANCE;
             }
         } catch (InterruptedException | BrokenBarrierException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Only while paused: shows the state before the previous statement, or false when none is kept
+    public boolean stepBack() {
+        return travelBack(-1);
+    }
+
+    public boolean runBackToLine(int line) {
+        return travelBack(line);
+    }
+
+    private boolean travelBack(int line) {
+        if (history == null || !(state instanceof InterpreterState.PausedDebug) || lock.getNumberWaiting() != 1) {
+            return false;
+        }
+        long target = history.previousStatement(historyCursor == -1 ? pausedPosition : historyCursor, line);
+        if (target == -1) {
+            return false;
+        }
+        historyCursor = target;
+        showHistory();
+        return true;
+    }
+
+    private void showHistory() {
+        if (debuggerCallback != null && history != null && pausedState != null) {
+            debuggerCallback.accept(historyCursor == -1 ? pausedState : history.stateAt(historyCursor));
+        }
+    }
+
     private void handleDebugCommand(Node node) throws BrokenBarrierException, InterruptedException {
         if (debuggerCallback != null) {
-            debuggerCallback.accept(new ProgramState(node.location().orElse(Location.EMPTY).startLine() - 1, Map.copyOf(stack)));
+            int line = node.location().orElse(Location.EMPTY).startLine();
+            InterpreterEvents.DebuggerPause event = new InterpreterEvents.DebuggerPause();
+            event.begin();
+            pausedState = new ProgramState(line - 1, Map.copyOf(stack));
+            if (history != null) {
+                // Commands record their statement before running, so that one is where the pause is
+                pausedPosition = node instanceof Node.CommandNode ? history.lastStatement() : history.present();
+                historyCursor = -1;
+            }
+            debuggerCallback.accept(pausedState);
             lock.await();
             lock.reset();
+            if (event.shouldCommit()) {
+                event.programName = programName;
+                event.line = line;
+                event.commit();
+            }
         }
     }
 
     private void runConstant(Node.ConstantNode constantNode) {
-        stack.lastEntry().getValue().put(constantNode.name().id(), evaluate(constantNode.value()));
+        Map<String, Object> frame = stack.lastEntry().getValue();
+        frame.put(constantNode.name().id(), evaluate(constantNode.value()));
+        if (history != null) {
+            history.write(frame, constantNode.name().id());
+        }
     }
 
     private void runSubprogramDeclaration(Node.SubprogramDeclarationNode subprogramDeclarationNode) {
@@ -279,12 +669,19 @@ public class Interpreter {
     }
 
     private void runPausaCommand(Location commandNode, Node.CommandNode commandNode1) throws BrokenBarrierException, InterruptedException {
+        if (replayer != null && replayer.skipping()) {
+            return;
+        }
         state = new InterpreterState.PausedDebug(commandNode.startLine());
         handleDebugCommand(commandNode1);
     }
 
     private void runReturnNode(Node.ReturnNode returnNode) {
-        stack.lastEntry().getValue().put("(RESULTADO)", evaluate(returnNode.expr()));
+        Map<String, Object> frame = stack.lastEntry().getValue();
+        frame.put("(RESULTADO)", evaluate(returnNode.expr()));
+        if (history != null) {
+            history.write(frame, "(RESULTADO)");
+        }
         throw new ReturnException();
     }
 
@@ -314,7 +711,9 @@ public class Interpreter {
 
     private void runChooseCommand(Node.ChooseCommandNode chooseCommandNode) {
         Node.ExpressionNode test = chooseCommandNode.expr();
-        for (Node.ChooseCaseNode chooseCaseNode : chooseCommandNode.cases().nodes()) {
+        List<Node.ChooseCaseNode> cases = chooseCommandNode.cases().nodes();
+        for (int caseIndex = 0; caseIndex < cases.size(); caseIndex++) {
+            Node.ChooseCaseNode chooseCaseNode = cases.get(caseIndex);
             for (Node.ExpressionNode values : chooseCaseNode.value().nodes()) {
                 switch (values) {
                     case Node.RangeNode(Node.ExpressionNode start, Node.ExpressionNode end, _) -> {
@@ -326,12 +725,14 @@ public class Interpreter {
                         );
 
                         if (evaluate(andNode)) {
+                            notifyBranch(chooseCommandNode, caseIndex);
                             run(chooseCaseNode.commands());
                             return;
                         }
                     }
                     case Node.ExpressionNode e -> {
                         if (evaluate(new Node.EqNode(test, e, Optional.empty()))) {
+                            notifyBranch(chooseCommandNode, caseIndex);
                             run(chooseCaseNode.commands());
                             return;
                         }
@@ -339,17 +740,32 @@ public class Interpreter {
                 }
             }
         }
+        notifyBranch(chooseCommandNode, cases.size());
         run(chooseCommandNode.defaultCase().commands());
     }
 
     private void runArquivoCommand(Node.ArquivoCommandNode arquivoCommandNode) {
+        closeArquivo();
         try {
-            inputState = InputState.compose(new InputState.Arquivo(arquivoCommandNode.filename().value()), inputFromIO);
+            arquivo = new InputState.Arquivo(arquivoCommandNode.filename().value());
+            inputState = InputState.compose(arquivo, inputFromIO);
         } catch (IOException e) {
             inputState = inputFromIO;
         }
     }
 
+    private void closeArquivo() {
+        if (arquivo == null) {
+            return;
+        }
+        try {
+            arquivo.close();
+        } catch (IOException _) {
+            // Nothing was written, so there is nothing to lose
+        }
+        arquivo = null;
+    }
+
     private void runAleatorio(Node.AleatorioNode aleatorioNode) {
         switch (aleatorioNode) {
             case Node.AleatorioOffNode _ -> inputState = inputFromIO;
@@ -370,7 +786,11 @@ public class Interpreter {
     private void runAssignment(Node.AssignmentNode assignmentNode) {
         Object evaluate = evaluate(assignmentNode.expr());
         switch (assignmentNode.idOrArray()) {
-            case Node.IdNode idNode -> assignVariable(idNode.id(), evaluate, AssignContext.SIMPLE);
+            case Node.IdNode idNode -> {
+                Object oldValue = assignVariable(idNode.id(), evaluate, AssignContext.SIMPLE);
+                notifyAssign(idNode.id(), evaluate);
+                watchWrite(assignmentNode, idNode.id(), oldValue);
+            }
             case Node.ArrayAccessNode arrayAccessNode -> {
                 Node node = arrayAccessNode.node();
                 Object o = evaluateVariableOrFunction(getIdentifierForArray(node));
@@ -380,18 +800,30 @@ public class Interpreter {
                         int index1 = ((Number) evaluate(indexes.nodes().getFirst())).intValue();
                         int index2 = ((Number) evaluate(indexes.nodes().getLast())).intValue();
                         Object[] array = multiarray[index1];
+                        Object oldValue = array[index2];
                         assignToArray(array, index2, evaluate);
+                        if (history != null) {
+                            history.writeElement(array, index2, array[index2]);
+                        }
+                        watchWrite(assignmentNode, multiarray, index1, index2, oldValue, array[index2]);
                     }
                     case Object[] array -> {
                         int index = ((Number) evaluate(indexes.nodes().getFirst())).intValue();
+                        Object oldValue = array[index];
                         assignToArray(array, index, evaluate);
+                        if (history != null) {
+                            history.writeElement(array, index, array[index]);
+                        }
+                        watchWrite(assignmentNode, array, index, -1, oldValue, array[index]);
                     }
                     default -> throw unsupportedType(o);
                 }
+                notifyAssign(getIdentifierForArray(node).id(), evaluate);
 
             }
             case Node.MemberAccessNode memberAccessNode -> {
-                Object evaluateMember = evaluate(memberAccessNode.node());
+                List<Object> path = watchedVariables != null ? new ArrayList<>() : null;
+                Object evaluateMember = path != null ? evaluateLocation(memberAccessNode.node(), path) : evaluate(memberAccessNode.node());
                 if (!(evaluateMember instanceof UserDefinedValue userDefinedValue)) {
                     throw unsupportedType(evaluate);
                 }
@@ -415,12 +847,71 @@ public class Interpreter {
                     }
                 }
 
-                userDefinedValue.values().put(idNode.id(), valueToAssign);
+                Object oldValue = userDefinedValue.values().put(idNode.id(), valueToAssign);
+                if (history != null) {
+                    history.writeField(userDefinedValue, idNode.id(), valueToAssign);
+                }
+                if (path != null) {
+                    watchFieldWrite(assignmentNode, memberAccessNode.node(), path, oldValue, valueToAssign);
+                }
+                if (listener != null && (memberAccessNode.node() instanceof Node.IdNode || memberAccessNode.node() instanceof Node.ArrayAccessNode)) {
+                    notifyAssign(getIdentifierForArray(memberAccessNode.node()).id(), valueToAssign);
+                }
             }
             case null, default -> throw unsupportedType(assignmentNode);
         }
     }
 
+    private void watchWrite(Node node, String variable, Object oldValue) {
+        Set<String> watchedVariables = this.watchedVariables;
+        if (watchedVariables != null && watchedVariables.contains(variable)) {
+            watchWrite(node, oldValue, Objects.requireNonNull(lookupVariable(variable)),
+                    watchpoint -> watchpoint.variable().equals(variable) && watchpoint.watches(-1, -1));
+        }
+    }
+
+    // The indexes at the start of the path pick the registro out of a vetor, for watchpoints on a cell
+    private void watchFieldWrite(Node node, Node.ExpressionNode record, List<Object> path, Object oldValue, Object newValue) {
+        Object root = Objects.requireNonNull(lookupVariable(rootVariable(record)));
+        int index = !path.isEmpty() && path.get(0) instanceof Integer first ? first : -1;
+        int index2 = index != -1 && path.size() > 1 && path.get(1) instanceof Integer second ? second : -1;
+        watchWrite(node, root, index, index2, oldValue, newValue);
+    }
+
+    // Vetores and registros are matched by identity with what the watched name holds right now, so a
+    // write through a parameter or another variable holding the same vetor is seen too
+    private void watchWrite(Node node, Object target, int index, int index2, Object oldValue, Object newValue) {
+        if (watchedVariables != null) {
+            watchWrite(node, oldValue, newValue,
+                    watchpoint -> lookupVariable(watchpoint.variable()) == target && watchpoint.watches(index, index2));
+        }
+    }
+
+    // Pauses after the write, on the line that made it, like pausa does
+    private void watchWrite(Node node, Object oldValue, Object newValue, Predicate<Watchpoint> matches) {
+        if (oldValue.equals(newValue) || (replayer != null && replayer.skipping())) {
+            return;
+        }
+        for (Watchpoint watchpoint : watchpoints) {
+            if (matches.test(watchpoint) && watchpoint.condition().test(newValue)) {
+                try {
+                    state = new InterpreterState.PausedDebug(node.location().orElse(Location.EMPTY).startLine());
+                    handleDebugCommand(node);
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    throw new RuntimeException(e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void notifyAssign(String variable, Object value) {
+        ExecutionListener listener = this.listener;
+        if (listener != null) {
+            listener.assign(variable, value);
+        }
+    }
+
     private static void assignToArray(Object[] array, int index, Object evaluate) {
         Class<?> componentType = array.getClass().getComponentType();
         if (componentType != evaluate.getClass()) {
@@ -438,31 +929,80 @@ public class Interpreter {
     }
 
     private void runWriteCommandNode(Node.WriteCommandNode writeCommandNode) {
+        InterpreterEvents.OutputFlush event = new InterpreterEvents.OutputFlush();
+        event.begin();
+        long outputBefore = governor.outputLength();
         run(writeCommandNode.writeList());
         if (writeCommandNode.newLine()) {
-            io.output().accept(new OutputEvent.Text("\n"));
+            writeText("\n");
+        }
+        int line = writeCommandNode.location().orElse(Location.EMPTY).startLine();
+        if (recorder != null) {
+            recorder.checkpoint(governor.steps, line);
+        }
+        if (replayer != null && replayer.checkpoint(line)) {
+            // Reached the checkpoint to skip to: show everything at once and stop on the next line
+            io.output().accept(new OutputEvent.Text(replayer.takeSkippedOutput()));
+            setNextLineDebug(new InterpreterState.PausedDebug(line));
+        }
+        if (event.shouldCommit()) {
+            event.programName = programName;
+            event.line = line;
+            event.characters = governor.outputLength() - outputBefore;
+            event.commit();
+        }
+    }
+
+    private void writeText(String text) {
+        governor.output(text.length());
+        ExecutionListener listener = this.listener;
+        if (listener != null) {
+            listener.write(text);
+        }
+        if (recorder != null) {
+            recorder.output(text);
+        }
+        if (replayer != null && !replayer.output(text)) {
+            return;
         }
+        io.output().accept(new OutputEvent.Text(text));
     }
 
     private void runWhileCommand(Node.WhileCommandNode whileCommandNode) {
+        int iterations = 0;
         try {
             if (whileCommandNode.conditionAtEnd()) {
                 do {
+                    iterations++;
+                    governor.poll();
                     run(whileCommandNode.commands());
                 } while (!(Boolean) evaluate(whileCommandNode.test()));
             } else {
                 while (evaluate(whileCommandNode.test())) {
+                    iterations++;
+                    governor.poll();
                     run(whileCommandNode.commands());
                 }
             }
         } catch (BreakException _) {
         }
+        // A repita always runs once, so for it the branch is whether it came back for more
+        notifyBranch(whileCommandNode, iterations > (whileCommandNode.conditionAtEnd() ? 1 : 0) ? 0 : 1);
+    }
+
+    private void notifyBranch(Node node, int outcome) {
+        ExecutionListener listener = this.listener;
+        if (listener != null) {
+            listener.branch(node.location().orElse(Location.EMPTY).startLine(), outcome);
+        }
     }
 
     private void runConditionalCommand(Node.ConditionalCommandNode conditionalCommandNode) {
         if (evaluate(conditionalCommandNode.expr())) {
+            notifyBranch(conditionalCommandNode, 0);
             run(conditionalCommandNode.commands());
         } else {
+            notifyBranch(conditionalCommandNode, 1);
             run(conditionalCommandNode.elseCommands());
         }
     }
@@ -476,8 +1016,9 @@ public class Interpreter {
             case Node.IdNode idNode -> {
                 Object variable = evaluateVariableOrFunction(idNode);
                 InputRequestValue inputRequest = new InputRequestValue(idNode.id(), InputRequestValue.Type.fromClass(variable.getClass()));
-                Object value = readValue(inputRequest);
-                assignVariable(idNode.id(), value, AssignContext.SIMPLE);
+                Object value = readValue(inputRequest, expr);
+                Object oldValue = assignVariable(idNode.id(), value, AssignContext.SIMPLE);
+                watchWrite(expr, idNode.id(), oldValue);
             }
             case Node.ArrayAccessNode arrayAccessNode -> {
                 Node.IdNode node = getIdentifierForArray(arrayAccessNode.node());
@@ -491,19 +1032,28 @@ public class Interpreter {
                         int index2 = ((Number) evaluate(indexes.nodes().getLast())).intValue();
                         InputRequestValue inputRequest = new InputRequestValue(node.id() + "[" + index1 + "," + index2 + "]", InputRequestValue.Type.fromClass(componentType.getComponentType()));
                         Object oldValue = multiarray[index1][index2];
-                        multiarray[index1][index2] = assignSimple(readValue(inputRequest), oldValue.getClass());
+                        multiarray[index1][index2] = assignSimple(readValue(inputRequest, expr), oldValue.getClass());
+                        if (history != null) {
+                            history.writeElement(multiarray[index1], index2, multiarray[index1][index2]);
+                        }
+                        watchWrite(expr, multiarray, index1, index2, oldValue, multiarray[index1][index2]);
                     }
                     case Object[] array -> {
                         int index = ((Number) evaluate(indexes.nodes().getFirst())).intValue();
                         InputRequestValue inputRequest = new InputRequestValue(node.id() + "[" + index + "]", InputRequestValue.Type.fromClass(componentType));
                         Object oldValue = array[index];
-                        array[index] = assignSimple(readValue(inputRequest), oldValue.getClass());
+                        array[index] = assignSimple(readValue(inputRequest, expr), oldValue.getClass());
+                        if (history != null) {
+                            history.writeElement(array, index, array[index]);
+                        }
+                        watchWrite(expr, array, index, -1, oldValue, array[index]);
                     }
                     default -> throw unsupportedType(variable);
                 }
             }
             case Node.MemberAccessNode(Node.ExpressionNode node, Node member, _) -> {
-                Object evaluate = evaluate(node);
+                List<Object> path = watchedVariables != null ? new ArrayList<>() : null;
+                Object evaluate = path != null ? evaluateLocation(node, path) : evaluate(node);
                 if (!(evaluate instanceof UserDefinedValue userDefinedValue)) {
                     throw unsupportedType(evaluate);
                 }
@@ -518,26 +1068,62 @@ public class Interpreter {
                 Class<?> type = getType(typeNode);
                 InputRequestValue inputRequest = new InputRequestValue(idNode.id(), InputRequestValue.Type.fromClass(type));
                 Object oldValue = userDefinedValue.values().get(idNode.id());
-                Object value = readValue(inputRequest);
-                userDefinedValue.values().put(idNode.id(), assignSimple(value, oldValue.getClass()));
+                Object value = readValue(inputRequest, expr);
+                Object newValue = assignSimple(value, oldValue.getClass());
+                userDefinedValue.values().put(idNode.id(), newValue);
+                if (history != null) {
+                    history.writeField(userDefinedValue, idNode.id(), newValue);
+                }
+                if (path != null) {
+                    watchFieldWrite(expr, node, path, oldValue, newValue);
+                }
             }
             default -> throw unsupportedType(expr);
         }
     }
 
-    private Object readValue(InputRequestValue inputRequest) {
-        InputValue inputValue = inputState.generateValue(inputRequest);
-        Object value = switch (inputValue) {
-            case InputValue.InteiroValue(var value1) -> value1;
-            case InputValue.RealValue(var value1) -> value1;
-            case InputValue.CaracterValue(var value1) -> value1;
-            case InputValue.LogicoValue(var value1) -> value1;
+    private Object readValue(InputRequestValue inputRequest, Node.ExpressionNode expr) {
+        Object value = replayer != null ? replayer.input() : switch (inputState) {
+            // Pulled values go straight into the variable, without an InputValue in between
+            case InputState.Pull pull -> pull.read(inputRequest.type());
+            case InputState.ReadInput _ -> {
+                // Only reading from IO can block; scripted and random input never waits
+                InterpreterEvents.InputWait event = InterpreterEvents.INPUT_WAIT.isEnabled() ? new InterpreterEvents.InputWait() : null;
+                if (event != null) {
+                    event.begin();
+                }
+                InputValue inputValue = inputState.generateValue(inputRequest);
+                if (event != null && event.shouldCommit()) {
+                    event.programName = programName;
+                    event.line = expr.location().orElse(Location.EMPTY).startLine();
+                    event.variable = inputRequest.variableName();
+                    event.commit();
+                }
+                yield unwrap(inputValue);
+            }
+            default -> unwrap(inputState.generateValue(inputRequest));
         };
-        if (eco && !(inputState instanceof InputState.ReadInput))
-            io.output().accept(new OutputEvent.Text(value + "\n"));
+        if (recorder != null) {
+            recorder.input(value);
+        }
+        ExecutionListener listener = this.listener;
+        if (listener != null) {
+            listener.read(inputRequest.variableName(), value);
+        }
+        if (eco && inputState != inputFromIO)
+            writeText(value + "\n");
         return value;
     }
 
+    private static Object unwrap(InputValue inputValue) {
+        return switch (inputValue) {
+            case InputValue.InteiroValue(var value) -> value;
+            case InputValue.RealValue(var value) -> value;
+            case InputValue.CaracterValue(var value) -> value;
+            case InputValue.LogicoValue(var value) -> value;
+        };
+    }
+
     private static Node.IdNode getIdentifierForArray(Node arrayAccessNode) {
         return switch (arrayAccessNode) {
             case Node.ArrayAccessNode nestedAccess -> getIdentifierForArray(nestedAccess.node());
@@ -546,6 +1132,16 @@ public class Interpreter {
         };
     }
 
+    // The variable that holds a field or element, however deeply nested
+    private static String rootVariable(Node node) {
+        return switch (node) {
+            case Node.MemberAccessNode memberAccessNode -> rootVariable(memberAccessNode.node());
+            case Node.ArrayAccessNode arrayAccessNode -> rootVariable(arrayAccessNode.node());
+            case Node.IdNode idNode -> idNode.id();
+            default -> throw unsupportedType(node);
+        };
+    }
+
     private Object evaluateVariableOrFunction(Node.IdNode idNode) {
         return stack.reversed().values().stream().filter(m -> m.containsKey(idNode.id())).map(m -> m.get(idNode.id())).findFirst()
                 .or(() -> Optional.ofNullable(functions.get(idNode.id())).map(_ -> new Node.FunctionCallNode(idNode, Node.CompundNode.empty(), Optional.empty())).map(this::evaluateFunction))
@@ -568,9 +1164,17 @@ public class Interpreter {
                 int endValue = this.<Number>evaluate(end).intValue();
                 int stepValue = this.<Number>evaluate(step).intValue();
                 int i;
-                if (stepValue < 0) {
+                if (arrayLoop(forCommandNode, startValue, endValue, stepValue) instanceof ArrayLoop arrayLoop
+                        && runArrayLoop(arrayLoop, startValue, endValue)) {
+                    i = endValue + 1;
+                } else if (parallelLoop(forCommandNode, startValue, endValue, stepValue) instanceof LoopDependenceAnalysis.IndependentLoop loop) {
+                    i = runParallelFor(forCommandNode, loop, startValue, stepValue, iterations(startValue, endValue, stepValue));
+                } else if (stepValue < 0) {
                     for (i = startValue; i >= endValue; i += stepValue) {
-                        assignVariable(id.id(), i, AssignContext.SIMPLE);
+                        governor.poll();
+                        Object oldValue = assignVariable(id.id(), i, AssignContext.SIMPLE);
+                        notifyAssign(id.id(), i);
+                        watchWrite(forCommandNode, id.id(), oldValue);
                         try {
                             run(command);
                         } catch (BreakException _) {
@@ -578,20 +1182,287 @@ public class Interpreter {
                     }
                 } else {
                     for (i = startValue; i <= endValue; i += stepValue) {
-                        assignVariable(id.id(), i, AssignContext.SIMPLE);
+                        governor.poll();
+                        Object oldValue = assignVariable(id.id(), i, AssignContext.SIMPLE);
+                        notifyAssign(id.id(), i);
+                        watchWrite(forCommandNode, id.id(), oldValue);
                         try {
                             run(command);
                         } catch (BreakException _) {
                         }
                     }
                 }
-                assignVariable(id.id(), i, AssignContext.SIMPLE);
+                Object oldValue = assignVariable(id.id(), i, AssignContext.SIMPLE);
+                notifyAssign(id.id(), i);
+                watchWrite(forCommandNode, id.id(), oldValue);
+                notifyBranch(forCommandNode, (stepValue < 0 ? startValue >= endValue : startValue <= endValue) ? 0 : 1);
             }
 
             default -> throw unsupportedType(forCommandNode);
         }
     }
 
+    private static long iterations(int startValue, int endValue, int stepValue) {
+        if (stepValue < 0) {
+            return startValue < endValue ? 0 : ((long) startValue - endValue) / -(long) stepValue + 1;
+        }
+        return startValue > endValue ? 0 : ((long) endValue - startValue) / stepValue + 1;
+    }
+
+    // Listeners, breakpoints, watchpoints, history and the debugger need every iteration to run node by node
+    private boolean stepsObserved() {
+        return listener != null || history != null || !breakpoints.isEmpty() || watchedVariables != null || !(state instanceof InterpreterState.Running);
+    }
+
+    @Nullable
+    private ArrayLoop arrayLoop(Node.ForCommandNode forCommandNode, int startValue, int endValue, int stepValue) {
+        if (loopVectorization == LoopVectorization.OFF || stepValue != 1 || startValue > endValue || stepsObserved()) {
+            return null;
+        }
+        return arrayLoops.computeIfAbsent(forCommandNode, ArrayLoop::recognize).orElse(null);
+    }
+
+    // Returns false, having changed nothing, when the values are not ones a kernel handles; interpreting
+    // the loop then reports any error exactly as before. Kernels cost the steps the interpreted body would,
+    // except that a Max is not charged for the assignments that raise the maximum.
+    private boolean runArrayLoop(ArrayLoop arrayLoop, int startValue, int endValue) {
+        long iterations = (long) endValue - startValue + 1;
+        boolean relaxed = loopVectorization == LoopVectorization.RELAXED;
+        switch (arrayLoop) {
+            case ArrayLoop.Sum(String accumulator, String arrayName) -> {
+                Object[] array = vetor(arrayName, startValue, endValue);
+                if (array == null || !governor.canAfford(2 * iterations)) {
+                    return false;
+                }
+                Object sum = switch (lookupVariable(accumulator)) {
+                    case Integer initial when array instanceof Integer[] values ->
+                            initial + ARRAY_KERNELS.sum(unboxInts(values, startValue, endValue));
+                    case Double initial -> ARRAY_KERNELS.sum(initial, unboxDoubles(array, startValue, endValue), relaxed);
+                    case null, default -> null;
+                };
+                if (sum == null) {
+                    return false;
+                }
+                governor.charge(2 * iterations);
+                assignVariable(accumulator, sum, AssignContext.SIMPLE);
+            }
+            case ArrayLoop.Dot(String accumulator, String leftName, String rightName) -> {
+                Object[] left = vetor(leftName, startValue, endValue);
+                Object[] right = vetor(rightName, startValue, endValue);
+                if (left == null || right == null || !governor.canAfford(2 * iterations)) {
+                    return false;
+                }
+                // Products of two inteiros wrap before they reach a real sum, which the real kernel would not do
+                Object sum = switch (lookupVariable(accumulator)) {
+                    case Integer initial when left instanceof Integer[] a && right instanceof Integer[] b ->
+                            initial + ARRAY_KERNELS.dot(unboxInts(a, startValue, endValue), unboxInts(b, startValue, endValue));
+                    case Double initial when left instanceof Double[] || right instanceof Double[] ->
+                            ARRAY_KERNELS.dot(initial, unboxDoubles(left, startValue, endValue), unboxDoubles(right, startValue, endValue), relaxed);
+                    case null, default -> null;
+                };
+                if (sum == null) {
+                    return false;
+                }
+                governor.charge(2 * iterations);
+                assignVariable(accumulator, sum, AssignContext.SIMPLE);
+            }
+            case ArrayLoop.Max(String accumulator, String arrayName) -> {
+                Object[] array = vetor(arrayName, startValue, endValue);
+                if (array == null || !governor.canAfford(3 * iterations)) {
+                    return false;
+                }
+                Object max = switch (lookupVariable(accumulator)) {
+                    case Integer initial when array instanceof Integer[] values ->
+                            ARRAY_KERNELS.max(initial, unboxInts(values, startValue, endValue));
+                    case Double initial when array instanceof Double[] values ->
+                            ARRAY_KERNELS.max(initial, unboxDoubles(values, startValue, endValue));
+                    case null, default -> null;
+                };
+                if (max == null) {
+                    return false;
+                }
+                governor.charge(3 * iterations);
+                assignVariable(accumulator, max, AssignContext.SIMPLE);
+            }
+            case ArrayLoop.Scale(String targetName, String sourceName, Node.ExpressionNode factorNode) -> {
+                Object[] target = vetor(targetName, startValue, endValue);
+                Object[] source = vetor(sourceName, startValue, endValue);
+                // A name that is not a variable is a call, which could return something else every iteration
+                if (target == null || source == null || !governor.canAfford(2 * iterations)
+                        || (factorNode instanceof Node.IdNode(String id, _) && lookupVariable(id) == null)) {
+                    return false;
+                }
+                Object factor = evaluate(factorNode);
+                if (source instanceof Integer[] values && factor instanceof Integer k && (target instanceof Integer[] || target instanceof Double[])) {
+                    int[] products = unboxInts(values, startValue, endValue);
+                    ARRAY_KERNELS.scale(products, k);
+                    if (target instanceof Double[]) {
+                        for (int i = 0; i < products.length; i++) {
+                            target[startValue + i] = (double) products[i];
+                        }
+                    } else {
+                        for (int i = 0; i < products.length; i++) {
+                            target[startValue + i] = products[i];
+                        }
+                    }
+                } else if (factor instanceof Number k && (factor instanceof Double || source instanceof Double[]) && target instanceof Double[]) {
+                    double[] products = unboxDoubles(source, startValue, endValue);
+                    ARRAY_KERNELS.scale(products, k.doubleValue());
+                    for (int i = 0; i < products.length; i++) {
+                        target[startValue + i] = products[i];
+                    }
+                } else {
+                    return false;
+                }
+                governor.charge(2 * iterations);
+            }
+        }
+        arrayLoopsRun++;
+        governor.poll();
+        return true;
+    }
+
+    // A one-dimensional vetor of inteiros or reais that has every index from start to end
+    @Nullable
+    private Object[] vetor(String name, int startValue, int endValue) {
+        if (lookupVariable(name) instanceof Object[] array && !(array instanceof Object[][])
+                && (array instanceof Integer[] || array instanceof Double[]) && startValue >= 0 && endValue < array.length) {
+            return array;
+        }
+        return null;
+    }
+
+    private static int[] unboxInts(Integer[] array, int startValue, int endValue) {
+        int[] values = new int[endValue - startValue + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array[startValue + i];
+        }
+        return values;
+    }
+
+    private static double[] unboxDoubles(Object[] array, int startValue, int endValue) {
+        double[] values = new double[endValue - startValue + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ((Number) array[startValue + i]).doubleValue();
+        }
+        return values;
+    }
+
+    // The CPU time limit is measured on this thread, so work on the pool would escape it
+    private LoopDependenceAnalysis.@Nullable IndependentLoop parallelLoop(Node.ForCommandNode forCommandNode, int startValue, int endValue, int stepValue) {
+        if (!parallelLoops || stepValue == 0 || stepsObserved() || governor.hasCpuTimeLimit()
+                || iterations(startValue, endValue, stepValue) < parallelLoopThreshold) {
+            return null;
+        }
+        LoopDependenceAnalysis.IndependentLoop loop = independentLoops.computeIfAbsent(forCommandNode,
+                node -> LoopDependenceAnalysis.analyze(node, functions.keySet(), pureFunctions)).orElse(null);
+        return loop == null || aliased(loop) ? null : loop;
+    }
+
+    // Arrays are shared by reference (a <- b, array arguments), so two names can reach the same elements
+    private boolean aliased(LoopDependenceAnalysis.IndependentLoop loop) {
+        Set<Object> written = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String name : loop.writtenArrays()) {
+            Object array = lookupVariable(name);
+            if (array == null || !written.add(array)) {
+                return true;
+            }
+        }
+        for (String name : loop.readVariables()) {
+            Object value = lookupVariable(name);
+            if (value != null && written.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private Object lookupVariable(String name) {
+        for (Map<String, Object> frame : stack.reversed().values()) {
+            Object value = frame.get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private record LoopChunk(Interpreter worker, @Nullable RuntimeException failure) {
+    }
+
+    private int runParallelFor(Node.ForCommandNode forCommandNode, LoopDependenceAnalysis.IndependentLoop loop, int startValue, int stepValue, long iterations) {
+        String variable = forCommandNode.identifier().id();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunks = (int) Math.min(iterations, pool.getParallelism() * 4L);
+        List<ForkJoinTask<LoopChunk>> tasks = new ArrayList<>(chunks);
+        ExecutionGovernor.SharedBudget budget = new ExecutionGovernor.SharedBudget(governor);
+        parallelLoopsRun++;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            long from = iterations * chunk / chunks;
+            long to = iterations * (chunk + 1) / chunks;
+            Interpreter worker = loopWorker(budget);
+            tasks.add(pool.submit(() -> worker.runLoopChunk(this, variable, forCommandNode.commands(), startValue, stepValue, from, to)));
+        }
+        // Every chunk finishes before anything is reported, so no worker writes to the arrays afterwards
+        List<LoopChunk> results = tasks.stream().map(ForkJoinTask::join).toList();
+
+        RuntimeException failure = null;
+        for (LoopChunk result : results) {
+            governor.join(result.worker().governor);
+            // Chunks stop at their first failure and are in iteration order, so this is the one a sequential run hits
+            if (failure == null) {
+                failure = result.failure();
+            }
+        }
+        if (failure instanceof LimitExceededException) {
+            governor.checkLimits();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        governor.checkLimits();
+
+        Interpreter last = results.getLast().worker();
+        for (String name : loop.privateVariables()) {
+            assignVariable(name, Objects.requireNonNull(last.lookupVariable(name)), AssignContext.SIMPLE);
+        }
+        return (int) (startValue + iterations * stepValue);
+    }
+
+    // Same subprograms and types, a copy of every frame; arrays stay shared, each iteration writes its own elements
+    private Interpreter loopWorker(ExecutionGovernor.SharedBudget budget) {
+        Interpreter worker = new Interpreter(io);
+        worker.functions.putAll(functions);
+        worker.procedures.putAll(procedures);
+        worker.userDefinedTypeMap.putAll(userDefinedTypeMap);
+        stack.forEach((name, frame) -> worker.stack.put(name, new HashMap<>(frame)));
+        worker.booleanEvaluation = booleanEvaluation;
+        worker.pureFunctions = pureFunctions;
+        worker.programName = programName;
+        worker.lineToAstNode = lineToAstNode;
+        worker.state = InterpreterState.Running.INSTANCE;
+        worker.governor.startWithin(governor, budget);
+        return worker;
+    }
+
+    private LoopChunk runLoopChunk(Interpreter parent, String variable, Node.CompundNode<Node.CommandNode> commands,
+                                   int startValue, int stepValue, long from, long to) {
+        try {
+            for (long iteration = from; iteration < to; iteration++) {
+                if (parent.state instanceof InterpreterState.ForcedStop) {
+                    throw new CancellationException("Program was cancelled");
+                }
+                governor.poll();
+                assignVariable(variable, (int) (startValue + iteration * stepValue), AssignContext.SIMPLE);
+                run(commands);
+            }
+            return new LoopChunk(this, null);
+        } catch (RuntimeException e) {
+            return new LoopChunk(this, e);
+        }
+    }
+
     private void printValue(Object value, Node spaces, Node precision) {
 
         if (value instanceof Integer i) {
@@ -635,7 +1506,7 @@ public class Interpreter {
             case Boolean bool -> bool ? " VERDADEIRO" : " FALSO";
             case null, default -> throw unsupportedType(value);
         };
-        io.output().accept(new OutputEvent.Text(text));
+        writeText(text);
 
     }
 
@@ -653,15 +1524,25 @@ public class Interpreter {
             case Node.PosNode(Node.ExpressionNode e, _) -> evaluate(e);
             case Node.NotNode notNode -> evaluateNotNode(notNode);
             case Node.EmptyExpressionNode _ -> 0;
-            case Node.ArrayAccessNode arrayAccessNode -> evaluateArrayAccessNode(arrayAccessNode);
-            case Node.MemberAccessNode memberAccessNode -> evaluateMemberAccessNode(memberAccessNode);
+            case Node.ArrayAccessNode arrayAccessNode -> evaluateArrayAccessNode(arrayAccessNode, null);
+            case Node.MemberAccessNode memberAccessNode -> evaluateMemberAccessNode(memberAccessNode, null);
             case Node.RangeNode _ -> throw new UnsupportedOperationException("RangeNode not implemented");
         };
 
     }
 
-    private Object evaluateMemberAccessNode(Node.MemberAccessNode memberAccessNode) {
-        Object evaluate = evaluate(memberAccessNode.node());
+    // Evaluates the record a field is written to, adding the indexes and field names that lead to it
+    // from its variable to the path, so watchpoints on a cell of a vetor of registros can tell it apart
+    private Object evaluateLocation(Node.ExpressionNode node, List<Object> path) {
+        return switch (node) {
+            case Node.ArrayAccessNode arrayAccessNode -> evaluateArrayAccessNode(arrayAccessNode, path);
+            case Node.MemberAccessNode memberAccessNode -> evaluateMemberAccessNode(memberAccessNode, path);
+            default -> evaluate(node);
+        };
+    }
+
+    private Object evaluateMemberAccessNode(Node.MemberAccessNode memberAccessNode, @Nullable List<Object> path) {
+        Object evaluate = path != null ? evaluateLocation(memberAccessNode.node(), path) : evaluate(memberAccessNode.node());
         if (!(evaluate instanceof UserDefinedValue userDefinedValue)) {
             throw unsupportedType(evaluate);
         }
@@ -671,6 +1552,9 @@ public class Interpreter {
         if (typeNode == null) {
             throw new TypeException.VariableNotFound(member.id());
         }
+        if (path != null) {
+            path.add(member.id());
+        }
         return userDefinedValue.values().get(member.id());
     }
 
@@ -694,7 +1578,7 @@ public class Interpreter {
         };
     }
 
-    private Object evaluateArrayAccessNode(Node.ArrayAccessNode arrayAccessNode) {
+    private Object evaluateArrayAccessNode(Node.ArrayAccessNode arrayAccessNode, @Nullable List<Object> path) {
         Object o = evaluateVariableOrFunction(getIdentifierForArray(arrayAccessNode.node()));
 
         Node.CompundNode<Node.ExpressionNode> indexes = arrayAccessNode.indexes();
@@ -703,10 +1587,17 @@ public class Interpreter {
             case Object[][] multiarray -> {
                 int index1 = ((Number) evaluate(indexes.nodes().getFirst())).intValue();
                 int index2 = ((Number) evaluate(indexes.nodes().getLast())).intValue();
+                if (path != null) {
+                    path.add(index1);
+                    path.add(index2);
+                }
                 return multiarray[index1][index2];
             }
             case Object[] array -> {
                 int index = ((Number) evaluate(indexes.nodes().getFirst())).intValue();
+                if (path != null) {
+                    path.add(index);
+                }
                 return array[index];
             }
             default -> throw unsupportedType(o);
@@ -716,9 +1607,16 @@ public class Interpreter {
     private Object evaluateFunction(Node.FunctionCallNode functionCallNode) {
         Node.FunctionDeclarationNode functionDeclaration = functions.get(functionCallNode.name().id());
         if (functionDeclaration != null) {
+            if (memoTable != null && pureFunctions.contains(functionDeclaration.name().id())) {
+                return callMemoizedFunction(functionCallNode, functionDeclaration, memoTable);
+            }
             return Objects.requireNonNull(callSubprogram(functionCallNode, functionDeclaration));
         } else if (StandardFunctions.FUNCTIONS.containsKey(functionCallNode.name().id())) {
             MethodHandle methodHandle = StandardFunctions.FUNCTIONS.get(functionCallNode.name().id());
+            MethodHandle randomFunction = randomFunctions.get(functionCallNode.name().id());
+            if (randomFunction != null) {
+                methodHandle = randomFunction;
+            }
             List<Object> list = functionCallNode.args().nodes().stream().map(this::evaluate).toList();
             MethodType type = methodHandle.type().wrap();
             if (type.parameterCount() != list.size()) {
@@ -741,22 +1639,87 @@ public class Interpreter {
         }
     }
 
+    private static Map<String, MethodHandle> bindRandomFunctions(RandomGenerator generator) {
+        Map<String, MethodHandle> bound = new HashMap<>();
+        StandardFunctions.RANDOM_FUNCTIONS.forEach((name, function) -> bound.put(name, function.bindTo(generator)));
+        return Map.copyOf(bound);
+    }
+
+    private Object callMemoizedFunction(Node.FunctionCallNode functionCallNode, Node.FunctionDeclarationNode functionDeclaration, MemoTable memoTable) {
+        List<Object> argumentValues = evaluateArguments(functionCallNode, functionDeclaration);
+        if (!argumentValues.stream().allMatch(MemoTable::isMemoizable)) {
+            return Objects.requireNonNull(invokeSubprogram(functionCallNode, functionDeclaration, argumentValues));
+        }
+        MemoTable.Key key = new MemoTable.Key(functionDeclaration.name().id(), argumentValues);
+        Object cached = memoTable.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Object result = Objects.requireNonNull(invokeSubprogram(functionCallNode, functionDeclaration, argumentValues));
+        if (MemoTable.isMemoizable(result)) {
+            memoTable.put(key, result);
+        }
+        return result;
+    }
+
+    private List<Object> evaluateArguments(Node.SubprogramCallNode subprogramCall, Node.SubprogramDeclarationNode subprogramDeclaration) {
+        List<Node.VariableDeclarationNode> parameters = subprogramDeclaration.parameters().nodes();
+        List<Node.ExpressionNode> arguments = subprogramCall.args().nodes();
+        if (parameters.size() != arguments.size()) {
+            throw new TypeException.WrongNumberOfArguments(parameters.size(), arguments.size());
+        }
+        return arguments.stream().map(this::evaluate).toList();
+    }
+
     @Nullable
     private Object callSubprogram(Node.SubprogramCallNode subprogramCall, Node.SubprogramDeclarationNode subprogramDeclaration) {
+        return invokeSubprogram(subprogramCall, subprogramDeclaration, evaluateArguments(subprogramCall, subprogramDeclaration));
+    }
+
+    @Nullable
+    private Object invokeSubprogram(Node.SubprogramCallNode subprogramCall, Node.SubprogramDeclarationNode subprogramDeclaration, List<Object> argumentValues) {
+        governor.poll();
+        ExecutionListener listener = this.listener;
+        if (listener != null) {
+            listener.subprogramEnter(subprogramDeclaration.name().id(), subprogramCall.location().orElse(Location.EMPTY).startLine());
+        }
+        InterpreterEvents.SubprogramCall event = InterpreterEvents.SUBPROGRAM_CALL.isEnabled() ? new InterpreterEvents.SubprogramCall() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try {
+            return runSubprogram(subprogramCall, subprogramDeclaration, argumentValues);
+        } finally {
+            if (listener != null) {
+                listener.subprogramExit(subprogramDeclaration.name().id());
+            }
+            if (event != null && event.shouldCommit()) {
+                event.programName = programName;
+                event.line = subprogramCall.location().orElse(Location.EMPTY).startLine();
+                event.subprogram = subprogramDeclaration.name().id();
+                event.commit();
+            }
+        }
+    }
+
+    @Nullable
+    private Object runSubprogram(Node.SubprogramCallNode subprogramCall, Node.SubprogramDeclarationNode subprogramDeclaration, List<Object> argumentValues) {
         HashMap<String, Object> localVariables = new HashMap<>();
-        String stackId = subprogramCall.name().id() + UUID.randomUUID();
+        // Live frames all have different depths, so the depth keeps recursive calls apart
+        String stackId = subprogramCall.name().id() + "#" + stack.size();
         stack.putLast(stackId, localVariables);
+        if (history != null) {
+            history.push(stackId, localVariables);
+        }
         Node.CompundNode<Node.VariableDeclarationNode> parametersDeclaration = subprogramDeclaration.parameters();
         List<Node.VariableDeclarationNode> parameters = parametersDeclaration.nodes();
         List<Node.ExpressionNode> arguments = subprogramCall.args().nodes();
-        if (parameters.size() != arguments.size()) {
-            throw new TypeException.WrongNumberOfArguments(parameters.size(), arguments.size());
-        }
-
-        List<Object> argumentValues = arguments.stream().map(this::evaluate).toList();
 
         if (subprogramDeclaration instanceof Node.FunctionDeclarationNode functionDeclarationNode) {
             localVariables.put("(RESULTADO)", newInstance(functionDeclarationNode.returnType()));
+            if (history != null) {
+                history.write(localVariables, "(RESULTADO)");
+            }
         }
 
         run(parametersDeclaration);
@@ -780,6 +1743,9 @@ public class Interpreter {
                 .toList();
 
         stack.remove(stackId);
+        if (history != null) {
+            history.pop(stackId, localVariables);
+        }
 
         for (int i = 0; i < parameters.size(); i++) {
             if (!parameters.get(i).reference()) {
@@ -897,6 +1863,9 @@ public class Interpreter {
         return switch (relationalNode) {
             case Node.AndNode(Node.ExpressionNode left, Node.ExpressionNode right, _) -> {
                 Object leftResult = evaluate(left);
+                if (booleanEvaluation == BooleanEvaluation.SHORT_CIRCUIT && Boolean.FALSE.equals(leftResult)) {
+                    yield false;
+                }
                 Object rightResult = evaluate(right);
 
                 yield switch (new PairValue(leftResult, rightResult)) {
@@ -907,6 +1876,9 @@ public class Interpreter {
             }
             case Node.OrNode(Node.ExpressionNode left, Node.ExpressionNode right, _) -> {
                 Object leftResult = evaluate(left);
+                if (booleanEvaluation == BooleanEvaluation.SHORT_CIRCUIT && Boolean.TRUE.equals(leftResult)) {
+                    yield true;
+                }
                 Object rightResult = evaluate(right);
 
                 yield switch (new PairValue(leftResult, rightResult)) {
@@ -1015,13 +1987,21 @@ public class Interpreter {
     }
 
     private void runAlgoritmo(Node.AlgoritimoNode algoritimoNode) throws InterruptedException {
-        stack.putLast("GLOBAL", new HashMap<>());
+        HashMap<String, Object> globals = new HashMap<>();
+        stack.putLast("GLOBAL", globals);
+        if (history != null) {
+            history.push("GLOBAL", globals);
+        }
         run(algoritimoNode.declarations());
         run(algoritimoNode.commands());
     }
 
     private void runVariableDeclaration(Node.VariableDeclarationNode variableDeclarationNode) {
-        stack.lastEntry().getValue().put(variableDeclarationNode.name().id(), newInstance(variableDeclarationNode.type()));
+        Map<String, Object> frame = stack.lastEntry().getValue();
+        frame.put(variableDeclarationNode.name().id(), newInstance(variableDeclarationNode.type()));
+        if (history != null) {
+            history.write(frame, variableDeclarationNode.name().id());
+        }
     }
 
     enum AssignContext {
@@ -1029,15 +2009,22 @@ public class Interpreter {
         ARGUMENT
     }
 
-    private void assignVariable(String name, Object value, AssignContext context) {
-        stack.reversed().values().stream().filter(m -> m.containsKey(name)).findFirst().ifPresentOrElse(m -> {
-            m.put(name, switch (context) {
-                case ARGUMENT -> assignArgument(value, m.get(name).getClass());
-                case SIMPLE -> assignSimple(value, m.get(name).getClass());
-            });
-        }, () -> {
-            throw new TypeException.VariableNotFound(name);
-        });
+    // Returns the value it replaced, for watchpoints
+    private Object assignVariable(String name, Object value, AssignContext context) {
+        for (Map<String, Object> m : stack.reversed().values()) {
+            Object oldValue = m.get(name);
+            if (oldValue != null) {
+                m.put(name, switch (context) {
+                    case ARGUMENT -> assignArgument(value, oldValue.getClass());
+                    case SIMPLE -> assignSimple(value, oldValue.getClass());
+                });
+                if (history != null) {
+                    history.write(m, name);
+                }
+                return oldValue;
+            }
+        }
+        throw new TypeException.VariableNotFound(name);
     }
 
     private static Object assignSimple(Object value, Class<?> variableClass) {
@@ -1110,6 +2097,7 @@ public class Interpreter {
                         .mapToInt(node -> (Integer) evaluate(node.end()) + 2)
                         .toArray();
 
+                governor.allocateArray(Arrays.stream(dimensions).asLongStream().reduce(1, (a, b) -> a * b));
                 Object o = Array.newInstance(typeClass, dimensions);
                 switch (o) {
                     case Object[][] multiArray ->
@@ -0,0 +1,94 @@
+package dev.thihup.jvisualg.interpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+final class InterpreterEvents {
+
+    private InterpreterEvents() {
+    }
+
+    // Subprogram calls and interactive reads happen often; checking the type first avoids creating the event
+    static final EventType SUBPROGRAM_CALL = EventType.getEventType(SubprogramCall.class);
+    static final EventType INPUT_WAIT = EventType.getEventType(InputWait.class);
+
+    @Name("dev.thihup.jvisualg.ProgramRun")
+    @Label("Program Run")
+    @Category({"JVisualg", "Interpreter"})
+    @Description("A whole run of a program, from linking to the last command")
+    static final class ProgramRun extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Line")
+        int line;
+
+        @Label("Steps")
+        long steps;
+
+        @Label("Outcome")
+        String outcome;
+    }
+
+    // Most calls are far too short to be worth an event; the threshold can be lowered in a JFC file
+    @Name("dev.thihup.jvisualg.SubprogramCall")
+    @Label("Subprogram Call")
+    @Category({"JVisualg", "Interpreter"})
+    @Threshold("1 ms")
+    static final class SubprogramCall extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Line")
+        int line;
+
+        @Label("Subprogram")
+        String subprogram;
+    }
+
+    @Name("dev.thihup.jvisualg.InputWait")
+    @Label("Input Wait")
+    @Category({"JVisualg", "Interpreter"})
+    @Description("Time blocked waiting for the user to type a value")
+    static final class InputWait extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Line")
+        int line;
+
+        @Label("Variable")
+        String variable;
+    }
+
+    @Name("dev.thihup.jvisualg.OutputFlush")
+    @Label("Output Flush")
+    @Category({"JVisualg", "Interpreter"})
+    @Description("Text handed to the output consumer by an escreva or escreval command")
+    static final class OutputFlush extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Line")
+        int line;
+
+        @Label("Characters")
+        long characters;
+    }
+
+    @Name("dev.thihup.jvisualg.DebuggerPause")
+    @Label("Debugger Pause")
+    @Category({"JVisualg", "Interpreter"})
+    @Description("Time the program stayed paused on a breakpoint or step")
+    static final class DebuggerPause extends jdk.jfr.Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Line")
+        int line;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.time.Duration;
+
+public sealed class LimitExceededException extends RuntimeException {
+    public LimitExceededException(String message) {
+        super(message);
+    }
+
+    public static final class Steps extends LimitExceededException {
+        public Steps(long limit) {
+            super("Program exceeded the limit of " + limit + " steps.");
+        }
+    }
+
+    public static final class CpuTime extends LimitExceededException {
+        public CpuTime(Duration limit) {
+            super("Program exceeded the CPU time limit of " + limit.toMillis() + " ms.");
+        }
+    }
+
+    public static final class ArrayAllocation extends LimitExceededException {
+        public ArrayAllocation(long limit) {
+            super("Program exceeded the limit of " + limit + " allocated array elements.");
+        }
+    }
+
+    public static final class Output extends LimitExceededException {
+        public Output(long limit) {
+            super("Program exceeded the limit of " + limit + " output characters.");
+        }
+    }
+}
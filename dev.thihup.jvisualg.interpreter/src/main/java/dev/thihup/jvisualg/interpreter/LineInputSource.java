@@ -0,0 +1,45 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+final class LineInputSource implements InputSource {
+    private final List<String> lines;
+    private int next;
+
+    LineInputSource(List<String> lines) {
+        this.lines = List.copyOf(lines);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < lines.size();
+    }
+
+    @Override
+    public int nextInteiro() {
+        return Integer.parseInt(nextLine().strip());
+    }
+
+    @Override
+    public double nextReal() {
+        return Double.parseDouble(nextLine().strip().replace(',', '.'));
+    }
+
+    @Override
+    public boolean nextLogico() {
+        return nextLine().strip().equalsIgnoreCase("VERDADEIRO");
+    }
+
+    @Override
+    public String nextCaracter() {
+        return nextLine();
+    }
+
+    private String nextLine() {
+        if (next == lines.size()) {
+            throw new NoSuchElementException("No more input");
+        }
+        return lines.get(next++);
+    }
+}
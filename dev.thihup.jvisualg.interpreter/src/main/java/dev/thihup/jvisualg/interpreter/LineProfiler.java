@@ -0,0 +1,123 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class LineProfiler implements ExecutionListener {
+
+    private final long[] lineHits;
+    private final long[] lineSelfNanos;
+
+    private final List<String> subprogramNames;
+    private final Map<String, Integer> subprogramIndexes = new HashMap<>();
+    private final long[] subprogramCalls;
+    private final long[] subprogramNanos;
+    private final int[] subprogramActive;
+
+    // Open lines: which line, when it started and how much of that went to nested lines
+    private int[] openLines = new int[64];
+    private long[] lineStarts = new long[64];
+    private long[] childNanos = new long[64];
+    // Statements entered on the same line as the open one, e.g. the items of an escreva
+    private int[] sameLineEntries = new int[64];
+    // The call depth a line was opened at; a recursive call running the same line opens it again
+    private int[] lineCallDepths = new int[64];
+    private int depth;
+
+    private int[] callIndexes = new int[64];
+    private long[] callStarts = new long[64];
+    private int callDepth;
+
+    LineProfiler(int lastLine, List<String> subprograms) {
+        this.lineHits = new long[lastLine + 1];
+        this.lineSelfNanos = new long[lastLine + 1];
+        this.subprogramNames = List.copyOf(subprograms);
+        for (int i = 0; i < subprogramNames.size(); i++) {
+            subprogramIndexes.put(subprogramNames.get(i), i);
+        }
+        this.subprogramCalls = new long[subprogramNames.size()];
+        this.subprogramNanos = new long[subprogramNames.size()];
+        this.subprogramActive = new int[subprogramNames.size()];
+    }
+
+    @Override
+    public void statementEnter(int line) {
+        if (depth > 0 && openLines[depth - 1] == line && lineCallDepths[depth - 1] == callDepth) {
+            sameLineEntries[depth - 1]++;
+            return;
+        }
+        lineHits[line]++;
+        if (depth == lineStarts.length) {
+            openLines = Arrays.copyOf(openLines, depth * 2);
+            lineStarts = Arrays.copyOf(lineStarts, depth * 2);
+            childNanos = Arrays.copyOf(childNanos, depth * 2);
+            sameLineEntries = Arrays.copyOf(sameLineEntries, depth * 2);
+            lineCallDepths = Arrays.copyOf(lineCallDepths, depth * 2);
+        }
+        openLines[depth] = line;
+        lineCallDepths[depth] = callDepth;
+        childNanos[depth] = 0;
+        sameLineEntries[depth] = 0;
+        lineStarts[depth++] = System.nanoTime();
+    }
+
+    @Override
+    public void statementExit(int line) {
+        if (sameLineEntries[depth - 1] > 0) {
+            sameLineEntries[depth - 1]--;
+            return;
+        }
+        long elapsed = System.nanoTime() - lineStarts[--depth];
+        lineSelfNanos[openLines[depth]] += elapsed - childNanos[depth];
+        if (depth > 0) {
+            childNanos[depth - 1] += elapsed;
+        }
+    }
+
+    @Override
+    public void subprogramEnter(String name, int line) {
+        int index = subprogramIndexes.getOrDefault(name, -1);
+        if (callDepth == callStarts.length) {
+            callIndexes = Arrays.copyOf(callIndexes, callDepth * 2);
+            callStarts = Arrays.copyOf(callStarts, callDepth * 2);
+        }
+        callIndexes[callDepth] = index;
+        callStarts[callDepth++] = System.nanoTime();
+        if (index >= 0) {
+            subprogramCalls[index]++;
+            subprogramActive[index]++;
+        }
+    }
+
+    @Override
+    public void subprogramExit(String name) {
+        int index = callIndexes[--callDepth];
+        if (index < 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - callStarts[callDepth];
+        // Only the outermost activation counts, so recursion is not added up several times
+        if (--subprogramActive[index] == 0) {
+            subprogramNanos[index] += elapsed;
+        }
+    }
+
+    Profile profile() {
+        List<Profile.LineProfile> lines = new ArrayList<>();
+        for (int line = 0; line < lineHits.length; line++) {
+            if (lineHits[line] > 0) {
+                lines.add(new Profile.LineProfile(line, lineHits[line], lineSelfNanos[line]));
+            }
+        }
+        List<Profile.SubprogramProfile> subprograms = new ArrayList<>();
+        for (int i = 0; i < subprogramNames.size(); i++) {
+            if (subprogramCalls[i] > 0) {
+                subprograms.add(new Profile.SubprogramProfile(subprogramNames.get(i), subprogramCalls[i], subprogramNanos[i]));
+            }
+        }
+        return new Profile(lines, subprograms);
+    }
+}
@@ -0,0 +1,145 @@
+package dev.thihup.jvisualg.interpreter;
+
+import dev.thihup.jvisualg.frontend.node.Node;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Decides whether the iterations of a para loop can run in any order. The body may only assign
+// array elements whose first index is the loop variable, read anything it does not write, and
+// call pure functions. Counters of para loops directly in the body are private to each iteration.
+final class LoopDependenceAnalysis {
+
+    record IndependentLoop(Set<String> writtenArrays, Set<String> readVariables, Set<String> privateVariables) {
+    }
+
+    private final String variable;
+    private final Set<String> functions;
+    private final Set<String> pureFunctions;
+    private final Set<String> writtenArrays = new HashSet<>();
+    private final Set<String> readVariables = new HashSet<>();
+    private final Set<String> privateVariables = new HashSet<>();
+
+    private LoopDependenceAnalysis(String variable, Set<String> functions, Set<String> pureFunctions) {
+        this.variable = variable;
+        this.functions = functions;
+        this.pureFunctions = pureFunctions;
+    }
+
+    static Optional<IndependentLoop> analyze(Node.ForCommandNode loop, Set<String> functions, Set<String> pureFunctions) {
+        LoopDependenceAnalysis analysis = new LoopDependenceAnalysis(loop.identifier().id(), functions, pureFunctions);
+        if (!analysis.independent(loop.commands().nodes())) {
+            return Optional.empty();
+        }
+        return Optional.of(new IndependentLoop(Set.copyOf(analysis.writtenArrays), Set.copyOf(analysis.readVariables),
+                Set.copyOf(analysis.privateVariables)));
+    }
+
+    private boolean independent(List<Node.CommandNode> body) {
+        for (Node.CommandNode command : body) {
+            if (!collectWrites(command, true)) {
+                return false;
+            }
+        }
+        if (privateVariables.contains(variable) || privateVariables.stream().anyMatch(writtenArrays::contains)) {
+            return false;
+        }
+
+        // A private counter can be read once its loop has assigned it in the current iteration
+        Set<String> assigned = new HashSet<>();
+        for (Node.CommandNode command : body) {
+            if (command instanceof Node.ForCommandNode inner) {
+                if (!reads(inner.startValue(), assigned) || !reads(inner.endValue(), assigned) || !reads(inner.step(), assigned)) {
+                    return false;
+                }
+                Set<String> inScope = new HashSet<>(assigned);
+                inScope.add(inner.identifier().id());
+                if (!inner.commands().nodes().stream().allMatch(nested -> commandReads(nested, inScope))) {
+                    return false;
+                }
+                assigned.add(inner.identifier().id());
+            } else if (!commandReads(command, assigned)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean collectWrites(Node.CommandNode command, boolean topLevel) {
+        return switch (command) {
+            case Node.AssignmentNode(Node.ArrayAccessNode(Node.IdNode array, var indexes, _), _, _)
+                    when indexedByVariable(indexes.nodes()) -> {
+                writtenArrays.add(array.id());
+                yield true;
+            }
+            case Node.ConditionalCommandNode(_, var commands, var elseCommands, _) ->
+                    commands.nodes().stream().allMatch(nested -> collectWrites(nested, false))
+                            && elseCommands.nodes().stream().allMatch(nested -> collectWrites(nested, false));
+            // Only a counter assigned in every iteration can be handed back from the last one
+            case Node.ForCommandNode(Node.IdNode counter, _, _, _, var commands, _) when topLevel -> {
+                privateVariables.add(counter.id());
+                yield commands.nodes().stream().allMatch(nested -> collectWrites(nested, false));
+            }
+            default -> false;
+        };
+    }
+
+    private boolean indexedByVariable(List<Node.ExpressionNode> indexes) {
+        return !indexes.isEmpty() && indexes.getFirst() instanceof Node.IdNode(String id, _) && id.equals(variable);
+    }
+
+    private boolean commandReads(Node.CommandNode command, Set<String> assigned) {
+        return switch (command) {
+            case Node.AssignmentNode(Node.ArrayAccessNode(_, var indexes, _), Node.ExpressionNode expr, _) ->
+                    indexes.nodes().stream().skip(1).allMatch(index -> reads(index, assigned)) && reads(expr, assigned);
+            case Node.ConditionalCommandNode(Node.ExpressionNode expr, var commands, var elseCommands, _) ->
+                    reads(expr, assigned)
+                            && commands.nodes().stream().allMatch(nested -> commandReads(nested, assigned))
+                            && elseCommands.nodes().stream().allMatch(nested -> commandReads(nested, assigned));
+            default -> false;
+        };
+    }
+
+    private boolean reads(Node.ExpressionNode expression, Set<String> assigned) {
+        return switch (expression) {
+            case Node.LiteralNode _, Node.EmptyExpressionNode _ -> true;
+            case Node.IdNode(String id, _) -> readsVariable(id, assigned);
+            case Node.FunctionCallNode(Node.IdNode(String id, _), var args, _) ->
+                    callable(id) && args.nodes().stream().allMatch(arg -> reads(arg, assigned));
+            case Node.ArrayAccessNode(Node.IdNode(String id, _), var indexes, _) when writtenArrays.contains(id) ->
+                    indexedByVariable(indexes.nodes()) && indexes.nodes().stream().skip(1).allMatch(index -> reads(index, assigned));
+            case Node.ArrayAccessNode(Node.IdNode(String id, _), var indexes, _) ->
+                    readsVariable(id, assigned) && indexes.nodes().stream().allMatch(index -> reads(index, assigned));
+            case Node.MemberAccessNode(Node.ExpressionNode node, _, _) -> reads(node, assigned);
+            case Node.BinaryNode binaryNode -> reads(binaryNode.left(), assigned) && reads(binaryNode.right(), assigned);
+            case Node.NegNode(Node.ExpressionNode expr, _) -> reads(expr, assigned);
+            case Node.PosNode(Node.ExpressionNode expr, _) -> reads(expr, assigned);
+            case Node.NotNode(Node.ExpressionNode expr, _) -> reads(expr, assigned);
+            default -> false;
+        };
+    }
+
+    private boolean readsVariable(String id, Set<String> assigned) {
+        if (id.equals(variable)) {
+            return true;
+        }
+        if (privateVariables.contains(id)) {
+            return assigned.contains(id);
+        }
+        // Identifiers that name functions are calls without parentheses, unless a variable shadows them
+        if (writtenArrays.contains(id) || ((functions.contains(id) || StandardFunctions.FUNCTIONS.containsKey(id)) && !callable(id))) {
+            return false;
+        }
+        readVariables.add(id);
+        return true;
+    }
+
+    private boolean callable(String id) {
+        if (functions.contains(id)) {
+            return pureFunctions.contains(id);
+        }
+        return StandardFunctions.FUNCTIONS.containsKey(id) && !PurityAnalysis.IMPURE_STANDARD_FUNCTIONS.contains(id);
+    }
+}
@@ -0,0 +1,11 @@
+package dev.thihup.jvisualg.interpreter;
+
+// How para loops that sum, multiply, find the maximum of or scale vetores run
+public enum LoopVectorization {
+    // Every iteration is interpreted
+    OFF,
+    // Loops run as array kernels with exactly the interpreted results: sums of reais keep the source order
+    STRICT,
+    // Sums and dot products of reais may also add elements in any order, so they can differ in the last bits
+    RELAXED
+}
@@ -0,0 +1,56 @@
+package dev.thihup.jvisualg.interpreter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class MemoTable {
+
+    record Key(String function, List<Object> arguments) {
+    }
+
+    private static final class Counters {
+        long hits;
+        long misses;
+    }
+
+    private final Map<Key, Object> entries;
+    private final Map<String, Counters> counters = new LinkedHashMap<>();
+
+    MemoTable(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static boolean isMemoizable(Object value) {
+        return value instanceof Integer || value instanceof Double || value instanceof String || value instanceof Boolean;
+    }
+
+    @Nullable
+    Object get(Key key) {
+        Object value = entries.get(key);
+        Counters functionCounters = counters.computeIfAbsent(key.function(), _ -> new Counters());
+        if (value != null) {
+            functionCounters.hits++;
+        } else {
+            functionCounters.misses++;
+        }
+        return value;
+    }
+
+    void put(Key key, Object value) {
+        entries.put(key, value);
+    }
+
+    List<MemoizationStatistics> statistics() {
+        return counters.entrySet().stream()
+                .map(e -> new MemoizationStatistics(e.getKey(), e.getValue().hits, e.getValue().misses))
+                .toList();
+    }
+}
@@ -0,0 +1,8 @@
+package dev.thihup.jvisualg.interpreter;
+
+public record MemoizationStatistics(String function, long hits, long misses) {
+    public double hitRate() {
+        long calls = hits + misses;
+        return calls == 0 ? 0 : (double) hits / calls;
+    }
+}
@@ -0,0 +1,73 @@
+package dev.thihup.jvisualg.interpreter;
+
+import dev.thihup.jvisualg.frontend.ASTResult;
+import dev.thihup.jvisualg.frontend.Error;
+import dev.thihup.jvisualg.frontend.ParseCache;
+import dev.thihup.jvisualg.frontend.TypeChecker;
+import dev.thihup.jvisualg.frontend.TypeCheckerResult;
+import dev.thihup.jvisualg.frontend.node.Location;
+import dev.thihup.jvisualg.frontend.node.Node;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public record PreparedProgram(Node root,
+                              NavigableMap<Integer, Node> lineToAstNode,
+                              Map<String, Node.FunctionDeclarationNode> functions,
+                              Map<String, Node.ProcedureDeclarationNode> procedures,
+                              Map<String, UserDefinedType> userDefinedTypes,
+                              Set<String> pureFunctions,
+                              List<Error> diagnostics) {
+
+    public PreparedProgram {
+        lineToAstNode = Collections.unmodifiableNavigableMap(new TreeMap<>(lineToAstNode));
+        functions = Map.copyOf(functions);
+        procedures = Map.copyOf(procedures);
+        userDefinedTypes = Map.copyOf(userDefinedTypes);
+        pureFunctions = Set.copyOf(pureFunctions);
+        diagnostics = List.copyOf(diagnostics);
+    }
+
+    // Diagnostics are informative only: the interpreter has always run programs the checker complains about
+    public static PreparedProgram prepare(String code) {
+        ParseCache.Entry entry = ParseCache.shared().get(code);
+        ASTResult parse = entry.astResult();
+        Node node = parse.node().orElseThrow(() -> new RuntimeException("Error parsing code: " + parse.errors().stream().map(x -> x.location() + ":" + x.message()).collect(Collectors.joining("\n"))));
+        return prepare(node, entry.typeCheckerResult().map(TypeCheckerResult::errors).orElse(List.of()));
+    }
+
+    public static PreparedProgram prepare(Node node) {
+        return prepare(node, TypeChecker.semanticAnalysis(node).errors());
+    }
+
+    private static PreparedProgram prepare(Node node, List<Error> diagnostics) {
+        TreeMap<Integer, Node> lineToAstNode = node.visitChildren()
+                .collect(Collectors.toMap(node2 -> node2.location().orElse(Location.EMPTY).startLine(),
+                        Function.identity(), (a, b) -> a, TreeMap::new));
+
+        Map<String, Node.FunctionDeclarationNode> functions = new HashMap<>();
+        Map<String, Node.ProcedureDeclarationNode> procedures = new HashMap<>();
+        Map<String, UserDefinedType> userDefinedTypes = new HashMap<>();
+        Set<String> pureFunctions = Set.of();
+        if (node instanceof Node.AlgoritimoNode algoritimoNode) {
+            if (algoritimoNode.declarations() instanceof Node.CompundNode<?> declarations) {
+                for (Node declaration : declarations.nodes()) {
+                    switch (declaration) {
+                        case Node.FunctionDeclarationNode functionDeclarationNode ->
+                                functions.put(functionDeclarationNode.name().id(), functionDeclarationNode);
+                        case Node.ProcedureDeclarationNode procedureDeclarationNode ->
+                                procedures.put(procedureDeclarationNode.name().id(), procedureDeclarationNode);
+                        case Node.RegistroDeclarationNode registroDeclarationNode ->
+                                userDefinedTypes.put(registroDeclarationNode.name().id(), UserDefinedType.from(registroDeclarationNode));
+                        default -> {
+                        }
+                    }
+                }
+            }
+            pureFunctions = PurityAnalysis.pureFunctions(algoritimoNode);
+        }
+
+        return new PreparedProgram(node, lineToAstNode, functions, procedures, userDefinedTypes, pureFunctions, diagnostics);
+    }
+}
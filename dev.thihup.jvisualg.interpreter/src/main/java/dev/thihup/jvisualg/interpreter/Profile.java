@@ -0,0 +1,48 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public record Profile(List<LineProfile> lines, List<SubprogramProfile> subprograms) {
+
+    public static final Profile EMPTY = new Profile(List.of(), List.of());
+
+    public record LineProfile(int line, long hits, long selfNanos) {
+    }
+
+    public record SubprogramProfile(String name, long calls, long totalNanos) {
+    }
+
+    public Profile {
+        lines = List.copyOf(lines);
+        subprograms = List.copyOf(subprograms);
+    }
+
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%8s %12s %14s%n", "Linha", "Execuções", "Tempo (ms)"));
+        lines.stream()
+                .sorted(Comparator.comparingLong(LineProfile::selfNanos).reversed())
+                .forEach(line -> builder.append(String.format(Locale.ROOT, "%8d %12d %14.3f%n", line.line(), line.hits(), line.selfNanos() / 1e6)));
+        if (!subprograms.isEmpty()) {
+            builder.append(String.format(Locale.ROOT, "%n%-20s %12s %14s%n", "Subprograma", "Chamadas", "Tempo (ms)"));
+            subprograms.stream()
+                    .sorted(Comparator.comparingLong(SubprogramProfile::totalNanos).reversed())
+                    .forEach(subprogram -> builder.append(String.format(Locale.ROOT, "%-20s %12d %14.3f%n", subprogram.name(), subprogram.calls(), subprogram.totalNanos() / 1e6)));
+        }
+        return builder.toString();
+    }
+
+    public String toJson() {
+        return "{\"lines\":[" + lines.stream()
+                .map(line -> "{\"line\":" + line.line() + ",\"hits\":" + line.hits() + ",\"selfNanos\":" + line.selfNanos() + "}")
+                .collect(Collectors.joining(","))
+                + "],\"subprograms\":[" + subprograms.stream()
+                // Identifiers are letters, digits and underscores, so they need no escaping
+                .map(subprogram -> "{\"name\":\"" + subprogram.name() + "\",\"calls\":" + subprogram.calls() + ",\"totalNanos\":" + subprogram.totalNanos() + "}")
+                .collect(Collectors.joining(","))
+                + "]}";
+    }
+}
@@ -0,0 +1,77 @@
+package dev.thihup.jvisualg.interpreter;
+
+import dev.thihup.jvisualg.frontend.node.Node;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+final class PurityAnalysis {
+
+    static final Set<String> IMPURE_STANDARD_FUNCTIONS = Set.of("rand", "randi");
+
+    private PurityAnalysis() {
+    }
+
+    static Set<String> pureFunctions(Node.AlgoritimoNode algoritimoNode) {
+        if (!(algoritimoNode.declarations() instanceof Node.CompundNode<?> declarations)) {
+            return Set.of();
+        }
+
+        Map<String, Node.FunctionDeclarationNode> functions = new LinkedHashMap<>();
+        Set<String> globalConstants = new HashSet<>();
+        for (Node declaration : declarations.nodes()) {
+            switch (declaration) {
+                case Node.FunctionDeclarationNode functionDeclarationNode ->
+                        functions.put(functionDeclarationNode.name().id(), functionDeclarationNode);
+                case Node.ConstantNode constantNode -> globalConstants.add(constantNode.name().id());
+                default -> {
+                }
+            }
+        }
+
+        // Greatest fixpoint: start assuming every function is pure and drop the ones that
+        // break a rule, until no more functions are removed. Handles (mutual) recursion.
+        Set<String> pure = new HashSet<>(functions.keySet());
+        boolean changed = true;
+        while (changed) {
+            changed = pure.removeIf(name -> !isPure(functions.get(name), pure, globalConstants));
+        }
+        return Set.copyOf(pure);
+    }
+
+    private static boolean isPure(Node.FunctionDeclarationNode function, Set<String> pureFunctions, Set<String> globalConstants) {
+        if (function.parameters().nodes().stream().anyMatch(Node.VariableDeclarationNode::reference)) {
+            return false;
+        }
+
+        Set<String> locals = function.parameters().nodes().stream()
+                .map(x -> x.name().id())
+                .collect(Collectors.toCollection(HashSet::new));
+        for (Node declaration : function.declarations().nodes()) {
+            switch (declaration) {
+                case Node.VariableDeclarationNode variableDeclarationNode -> locals.add(variableDeclarationNode.name().id());
+                case Node.ConstantNode constantNode -> locals.add(constantNode.name().id());
+                default -> {
+                }
+            }
+        }
+
+        return function.commands().visitChildren().allMatch(node -> switch (node) {
+            case Node.ReadCommandNode _, Node.WriteCommandNode _, Node.WriteItemNode _,
+                 Node.ArquivoCommandNode _, Node.AleatorioNode _, Node.LimpatelaCommandNode _,
+                 Node.PausaCommandNode _, Node.DebugCommandNode _, Node.EcoCommandNode _,
+                 Node.EndAlgorithmCommand _, Node.ProcedureCallNode _, Node.MemberAccessNode _ -> false;
+            case Node.IdNode idNode -> {
+                String id = idNode.id();
+                yield locals.contains(id)
+                        || globalConstants.contains(id)
+                        || pureFunctions.contains(id)
+                        || (StandardFunctions.FUNCTIONS.containsKey(id) && !IMPURE_STANDARD_FUNCTIONS.contains(id));
+            }
+            default -> true;
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package dev.thihup.jvisualg.interpreter;
+
+// A replayed run did something the recorded run did not: the program or its files changed
+public final class ReplayDivergedException extends RuntimeException {
+    public ReplayDivergedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,63 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.zip.CRC32;
+
+final class RunRecorder {
+    private final List<RunRecording.Entry> entries = new ArrayList<>();
+    private final CRC32 outputChecksum = new CRC32();
+    private long outputCharacters;
+
+    // rand and randi call nextDouble and nextInt(bound), which go to the delegate itself: its own versions
+    // mix differently from the defaults built on nextLong, and recording must not change the numbers.
+    // Each draw is kept as a long, the bits of a double or the value of an int.
+    RandomGenerator random(RandomGenerator delegate) {
+        return new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                return draw(delegate.nextLong());
+            }
+
+            @Override
+            public double nextDouble() {
+                return Double.longBitsToDouble(draw(Double.doubleToRawLongBits(delegate.nextDouble())));
+            }
+
+            @Override
+            public int nextInt(int bound) {
+                return (int) draw(delegate.nextInt(bound));
+            }
+        };
+    }
+
+    private long draw(long value) {
+        entries.add(new RunRecording.Entry.RandomDraw(value));
+        return value;
+    }
+
+    void input(Object value) {
+        entries.add(new RunRecording.Entry.Input(switch (value) {
+            case Integer inteiro -> new InputValue.InteiroValue(inteiro);
+            case Double real -> new InputValue.RealValue(real);
+            case Boolean logico -> new InputValue.LogicoValue(logico);
+            case String caracter -> new InputValue.CaracterValue(caracter);
+            default -> throw new IllegalArgumentException("Not an input value: " + value);
+        }));
+    }
+
+    void output(String text) {
+        outputCharacters += text.length();
+        outputChecksum.update(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void checkpoint(long steps, int line) {
+        entries.add(new RunRecording.Entry.Checkpoint(steps, line, outputCharacters, (int) outputChecksum.getValue()));
+    }
+
+    RunRecording recording() {
+        return new RunRecording(entries);
+    }
+}
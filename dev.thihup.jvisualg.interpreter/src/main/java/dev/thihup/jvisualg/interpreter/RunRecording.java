@@ -0,0 +1,157 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Everything a run took from outside, in the order it was taken: input values (including the ones
+// aleatorio made up), rand/randi draws, and a checkpoint after each escreva to verify a replay against
+public record RunRecording(List<Entry> entries) {
+
+    public static final RunRecording EMPTY = new RunRecording(List.of());
+
+    private static final int MAGIC = 0x4A564752;
+    private static final int VERSION = 1;
+
+    private static final int INTEIRO = 1;
+    private static final int REAL = 2;
+    private static final int CARACTER = 3;
+    private static final int VERDADEIRO = 4;
+    private static final int FALSO = 5;
+    private static final int RANDOM_DRAW = 6;
+    private static final int CHECKPOINT = 7;
+
+    public sealed interface Entry {
+        record Input(InputValue value) implements Entry {
+        }
+
+        record RandomDraw(long value) implements Entry {
+        }
+
+        // The output is identified by its length and CRC-32 so checkpoints stay small
+        record Checkpoint(long steps, int line, long outputCharacters, int outputChecksum) implements Entry {
+        }
+    }
+
+    public RunRecording {
+        entries = List.copyOf(entries);
+    }
+
+    public List<Entry.Checkpoint> checkpoints() {
+        return entries.stream()
+                .<Entry.Checkpoint>mapMulti((entry, downstream) -> {
+                    if (entry instanceof Entry.Checkpoint checkpoint) {
+                        downstream.accept(checkpoint);
+                    }
+                })
+                .toList();
+    }
+
+    // Checkpoints store steps and output length as deltas, so most entries take a few bytes
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        long steps = 0;
+        long outputCharacters = 0;
+        for (Entry entry : entries) {
+            switch (entry) {
+                case Entry.Input(InputValue.InteiroValue(int value)) -> {
+                    data.writeByte(INTEIRO);
+                    writeVarLong(data, Integer.toUnsignedLong((value << 1) ^ (value >> 31)));
+                }
+                case Entry.Input(InputValue.RealValue(double value)) -> {
+                    data.writeByte(REAL);
+                    data.writeDouble(value);
+                }
+                case Entry.Input(InputValue.CaracterValue(String value)) -> {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    data.writeByte(CARACTER);
+                    writeVarLong(data, bytes.length);
+                    data.write(bytes);
+                }
+                case Entry.Input(InputValue.LogicoValue(boolean value)) -> data.writeByte(value ? VERDADEIRO : FALSO);
+                case Entry.RandomDraw(long value) -> {
+                    data.writeByte(RANDOM_DRAW);
+                    data.writeLong(value);
+                }
+                case Entry.Checkpoint checkpoint -> {
+                    data.writeByte(CHECKPOINT);
+                    writeVarLong(data, checkpoint.steps() - steps);
+                    writeVarLong(data, checkpoint.line());
+                    writeVarLong(data, checkpoint.outputCharacters() - outputCharacters);
+                    data.writeInt(checkpoint.outputChecksum());
+                    steps = checkpoint.steps();
+                    outputCharacters = checkpoint.outputCharacters();
+                }
+            }
+        }
+        data.flush();
+    }
+
+    public static RunRecording read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a recorded run");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported recording version " + version);
+        }
+        List<Entry> entries = new ArrayList<>();
+        long steps = 0;
+        long outputCharacters = 0;
+        for (int tag = data.read(); tag >= 0; tag = data.read()) {
+            entries.add(switch (tag) {
+                case INTEIRO -> {
+                    long zigzag = readVarLong(data);
+                    yield new Entry.Input(new InputValue.InteiroValue((int) (zigzag >>> 1) ^ -(int) (zigzag & 1)));
+                }
+                case REAL -> new Entry.Input(new InputValue.RealValue(data.readDouble()));
+                case CARACTER -> {
+                    byte[] bytes = new byte[Math.toIntExact(readVarLong(data))];
+                    data.readFully(bytes);
+                    yield new Entry.Input(new InputValue.CaracterValue(new String(bytes, StandardCharsets.UTF_8)));
+                }
+                case VERDADEIRO -> new Entry.Input(new InputValue.LogicoValue(true));
+                case FALSO -> new Entry.Input(new InputValue.LogicoValue(false));
+                case RANDOM_DRAW -> new Entry.RandomDraw(data.readLong());
+                case CHECKPOINT -> {
+                    steps += readVarLong(data);
+                    int line = Math.toIntExact(readVarLong(data));
+                    outputCharacters += readVarLong(data);
+                    yield new Entry.Checkpoint(steps, line, outputCharacters, data.readInt());
+                }
+                default -> throw new IOException("Unknown recording entry " + tag);
+            });
+        }
+        return new RunRecording(entries);
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int current = data.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Malformed number in recording");
+    }
+}
@@ -0,0 +1,109 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.random.RandomGenerator;
+import java.util.zip.CRC32;
+
+final class RunReplayer {
+    private final List<RunRecording.Entry> entries;
+    private final int skipToCheckpoint;
+    private final CRC32 outputChecksum = new CRC32();
+    private final StringBuilder skippedOutput = new StringBuilder();
+    private long outputCharacters;
+    private int next;
+    private int checkpoints;
+
+    RunReplayer(RunRecording recording, int skipToCheckpoint) {
+        this.entries = recording.entries();
+        this.skipToCheckpoint = skipToCheckpoint;
+    }
+
+    // Until the checkpoint to skip to, output is held back and nothing pauses the run
+    boolean skipping() {
+        return checkpoints < skipToCheckpoint;
+    }
+
+    // Decodes the draws the way RunRecorder.random encoded them
+    RandomGenerator random() {
+        return new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                return draw();
+            }
+
+            @Override
+            public double nextDouble() {
+                return Double.longBitsToDouble(draw());
+            }
+
+            @Override
+            public int nextInt(int bound) {
+                return (int) draw();
+            }
+        };
+    }
+
+    private long draw() {
+        return next(RunRecording.Entry.RandomDraw.class, "a random draw").value();
+    }
+
+    Object input() {
+        // The recorded run ran out of input here too, so fail the same way
+        if (next == entries.size()) {
+            throw new NoSuchElementException("No value present");
+        }
+        return switch (next(RunRecording.Entry.Input.class, "an input value").value()) {
+            case InputValue.InteiroValue(int value) -> value;
+            case InputValue.RealValue(double value) -> value;
+            case InputValue.CaracterValue(String value) -> value;
+            case InputValue.LogicoValue(boolean value) -> value;
+        };
+    }
+
+    // Returns false while skipping, when the text must not reach the IO yet
+    boolean output(String text) {
+        outputCharacters += text.length();
+        outputChecksum.update(text.getBytes(StandardCharsets.UTF_8));
+        if (skipping()) {
+            skippedOutput.append(text);
+            return false;
+        }
+        return true;
+    }
+
+    // True when this is the checkpoint to skip to
+    boolean checkpoint(int line) {
+        RunRecording.Entry.Checkpoint checkpoint = next(RunRecording.Entry.Checkpoint.class, "an escreva");
+        if (checkpoint.line() != line || checkpoint.outputCharacters() != outputCharacters
+                || checkpoint.outputChecksum() != (int) outputChecksum.getValue()) {
+            throw new ReplayDivergedException("Output at line " + line + " differs from the recording, which wrote at line " + checkpoint.line());
+        }
+        return ++checkpoints == skipToCheckpoint;
+    }
+
+    String takeSkippedOutput() {
+        String text = skippedOutput.toString();
+        skippedOutput.setLength(0);
+        return text;
+    }
+
+    void finish() {
+        if (next < entries.size()) {
+            throw new ReplayDivergedException("The run ended before the recording did, at entry " + next + " of " + entries.size());
+        }
+    }
+
+    private <T extends RunRecording.Entry> T next(Class<T> kind, String expected) {
+        if (next == entries.size()) {
+            throw new ReplayDivergedException("The run asked for " + expected + " after the recording ended");
+        }
+        RunRecording.Entry entry = entries.get(next);
+        if (!kind.isInstance(entry)) {
+            throw new ReplayDivergedException("The run asked for " + expected + " but the recording has " + entry);
+        }
+        next++;
+        return kind.cast(entry);
+    }
+}
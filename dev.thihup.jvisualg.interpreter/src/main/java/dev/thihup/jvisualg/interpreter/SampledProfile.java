@@ -0,0 +1,27 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// Stacks are "programa:linha;subprograma:linha;..." from the outermost frame inwards
+public record SampledProfile(Duration interval, Map<String, Long> stacks) {
+
+    public static final SampledProfile EMPTY = new SampledProfile(Duration.ZERO, Map.of());
+
+    public SampledProfile {
+        stacks = Map.copyOf(stacks);
+    }
+
+    public long samples() {
+        return stacks.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    // One "stack count" line per distinct stack, the input format of flamegraph.pl and speedscope
+    public String folded() {
+        return new TreeMap<>(stacks).entrySet().stream()
+                .map(entry -> entry.getKey() + " " + entry.getValue() + "\n")
+                .collect(Collectors.joining());
+    }
+}
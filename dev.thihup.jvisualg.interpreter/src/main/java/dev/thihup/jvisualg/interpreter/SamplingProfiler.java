@@ -0,0 +1,102 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+// The interpreter thread keeps a shadow stack of VisuAlg frames up to date; a virtual thread
+// reads it every interval. The reads race with the writes, which at worst attributes a
+// sample to a neighbouring line.
+final class SamplingProfiler implements ExecutionListener {
+
+    private final Duration interval;
+    private String[] names = new String[64];
+    private int[] lines = new int[64];
+    // Published last on push and pop, so a sampler that reads it first sees arrays big enough
+    private volatile int depth;
+
+    private final Map<String, Long> stacks = new HashMap<>();
+    private volatile boolean running;
+    private Thread sampler;
+
+    SamplingProfiler(Duration interval, String programName) {
+        this.interval = interval;
+        names[0] = programName.isEmpty() ? "algoritmo" : programName;
+        depth = 1;
+    }
+
+    void start() {
+        running = true;
+        long intervalNanos = interval.toNanos();
+        sampler = Thread.ofVirtual().name("jvisualg-sampler").start(() -> {
+            while (running) {
+                LockSupport.parkNanos(intervalNanos);
+                if (running) {
+                    sample();
+                }
+            }
+        });
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(sampler);
+        // stop() on the interpreter interrupts this thread; still wait, profile() must not race the sampler
+        boolean interrupted = false;
+        while (sampler.isAlive()) {
+            try {
+                sampler.join();
+            } catch (InterruptedException _) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Only valid after stop()
+    SampledProfile profile() {
+        return new SampledProfile(interval, stacks);
+    }
+
+    // Package-private so tests can take samples at chosen points instead of on a timer
+    void sample() {
+        int depth = this.depth;
+        String[] names = this.names;
+        int[] lines = this.lines;
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                stack.append(';');
+            }
+            stack.append(names[i]).append(':').append(lines[i]);
+        }
+        stacks.merge(stack.toString(), 1L, Long::sum);
+    }
+
+    @Override
+    public void statementEnter(int line) {
+        lines[depth - 1] = line;
+    }
+
+    @Override
+    public void subprogramEnter(String name, int line) {
+        int depth = this.depth;
+        lines[depth - 1] = line;
+        if (depth == names.length) {
+            names = Arrays.copyOf(names, depth * 2);
+            lines = Arrays.copyOf(lines, depth * 2);
+        }
+        names[depth] = name;
+        lines[depth] = line;
+        this.depth = depth + 1;
+    }
+
+    @Override
+    public void subprogramExit(String name) {
+        depth--;
+    }
+}
@@ -0,0 +1,110 @@
+package dev.thihup.jvisualg.interpreter;
+
+// Plain loops that C2 unrolls and, for the integer and scaling ones, vectorizes by itself
+class ScalarKernels implements ArrayKernels {
+
+    @Override
+    public int sum(int[] values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    // Relaxed sums keep four partial sums, so each addition no longer waits for the one before it
+    @Override
+    public double sum(double initial, double[] values, boolean relaxed) {
+        if (!relaxed) {
+            double sum = initial;
+            for (double value : values) {
+                sum += value;
+            }
+            return sum;
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int bound = values.length & ~3; i < bound; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        double sum = initial + ((s0 + s1) + (s2 + s3));
+        for (; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dot(int[] left, int[] right) {
+        int sum = 0;
+        for (int i = 0; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+
+    // Multiply then add rather than fma, so each product is rounded like the interpreter's
+    @Override
+    public double dot(double initial, double[] left, double[] right, boolean relaxed) {
+        if (!relaxed) {
+            double sum = initial;
+            for (int i = 0; i < left.length; i++) {
+                sum += left[i] * right[i];
+            }
+            return sum;
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int bound = left.length & ~3; i < bound; i += 4) {
+            s0 += left[i] * right[i];
+            s1 += left[i + 1] * right[i + 1];
+            s2 += left[i + 2] * right[i + 2];
+            s3 += left[i + 3] * right[i + 3];
+        }
+        double sum = initial + ((s0 + s1) + (s2 + s3));
+        for (; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int max(int initial, int[] values) {
+        int max = initial;
+        for (int value : values) {
+            if (value > max) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    // Not Math.max: a comparison never picks NaN and keeps the first of 0.0 and -0.0, like se v[i] > m
+    @Override
+    public double max(double initial, double[] values) {
+        double max = initial;
+        for (double value : values) {
+            if (value > max) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public void scale(int[] values, int factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    @Override
+    public void scale(double[] values, double factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.random.RandomGenerator;
 
 public class StandardFunctions {
@@ -38,6 +39,8 @@ public class StandardFunctions {
     private static final MethodHandle POS;
 
     public static final Map<String, MethodHandle> FUNCTIONS;
+    // rand and randi again, taking the generator first: the interpreter binds the one its run owns
+    static final Map<String, MethodHandle> RANDOM_FUNCTIONS;
 
     static {
         try {
@@ -58,8 +61,14 @@ public class StandardFunctions {
             QUAD = MethodHandles.insertArguments(EXP, 1, 2);
             RADPGRAU = lookup.findStatic(Math.class, "toDegrees", doubleToDobule);
             RAIZQ = lookup.findStatic(Math.class, "sqrt", doubleToDobule);
-            RAND = lookup.findStatic(Math.class, "random", MethodType.methodType(double.class));
-            RANDI = lookup.findVirtual(RandomGenerator.class, "nextInt", MethodType.methodType(int.class, int.class)).bindTo(RandomGenerator.getDefault());
+            MethodHandle nextDouble = lookup.findVirtual(RandomGenerator.class, "nextDouble", MethodType.methodType(double.class));
+            MethodHandle nextInt = lookup.findVirtual(RandomGenerator.class, "nextInt", MethodType.methodType(int.class, int.class));
+            RANDOM_FUNCTIONS = Map.of("rand", nextDouble, "randi", nextInt);
+            // Outside an interpreter each thread draws from its own generator instead of a shared one
+            MethodHandle currentThreadRandom = lookup.findStatic(ThreadLocalRandom.class, "current", MethodType.methodType(ThreadLocalRandom.class))
+                    .asType(MethodType.methodType(RandomGenerator.class));
+            RAND = MethodHandles.foldArguments(nextDouble, currentThreadRandom);
+            RANDI = MethodHandles.foldArguments(nextInt, currentThreadRandom);
             SEN = lookup.findStatic(Math.class, "sin", doubleToDobule);
             TAN = lookup.findStatic(Math.class, "tan", doubleToDobule);
             MethodType stringToInt = MethodType.methodType(int.class, String.class);
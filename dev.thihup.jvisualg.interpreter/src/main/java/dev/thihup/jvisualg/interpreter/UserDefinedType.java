@@ -3,5 +3,13 @@ package dev.thihup.jvisualg.interpreter;
 import dev.thihup.jvisualg.frontend.node.Node;
 
 import java.util.Map;
+import java.util.stream.Collectors;
 
-public record UserDefinedType(String name, Map<String, Node.TypeNode> fields) {}
+public record UserDefinedType(String name, Map<String, Node.TypeNode> fields) {
+
+    static UserDefinedType from(Node.RegistroDeclarationNode registroDeclarationNode) {
+        Map<String, Node.TypeNode> fields = registroDeclarationNode.variableDeclarationContexts().nodes().stream()
+                .collect(Collectors.toMap(x -> x.name().id(), Node.VariableDeclarationNode::type));
+        return new UserDefinedType(registroDeclarationNode.name().id(), fields);
+    }
+}
@@ -0,0 +1,113 @@
+package dev.thihup.jvisualg.interpreter;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Each kernel runs whole vectors up to the loop bound and the remaining elements one by one. Strict real
+// sums and dot products keep the scalar loops, and so do real maxima, since lanes compare like Math.max.
+final class VectorKernels extends ScalarKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int sum(int[] values) {
+        IntVector sums = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            sums = sums.add(IntVector.fromArray(INTS, values, i));
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sum(double initial, double[] values, boolean relaxed) {
+        if (!relaxed) {
+            return super.sum(initial, values, false);
+        }
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(values.length); i < bound; i += DOUBLES.length()) {
+            sums = sums.add(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+        double sum = initial + sums.reduceLanes(VectorOperators.ADD);
+        for (; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dot(int[] left, int[] right) {
+        IntVector sums = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = INTS.loopBound(left.length); i < bound; i += INTS.length()) {
+            sums = sums.add(IntVector.fromArray(INTS, left, i).mul(IntVector.fromArray(INTS, right, i)));
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double dot(double initial, double[] left, double[] right, boolean relaxed) {
+        if (!relaxed) {
+            return super.dot(initial, left, right, false);
+        }
+        // Multiply then add rather than fma, so each product is rounded like the interpreter's
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(left.length); i < bound; i += DOUBLES.length()) {
+            sums = sums.add(DoubleVector.fromArray(DOUBLES, left, i).mul(DoubleVector.fromArray(DOUBLES, right, i)));
+        }
+        double sum = initial + sums.reduceLanes(VectorOperators.ADD);
+        for (; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int max(int initial, int[] values) {
+        IntVector maxima = IntVector.broadcast(INTS, initial);
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            maxima = maxima.max(IntVector.fromArray(INTS, values, i));
+        }
+        int max = maxima.reduceLanes(VectorOperators.MAX);
+        for (; i < values.length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public void scale(int[] values, int factor) {
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            IntVector.fromArray(INTS, values, i).mul(factor).intoArray(values, i);
+        }
+        for (; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    @Override
+    public void scale(double[] values, double factor) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(values.length); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, values, i).mul(factor).intoArray(values, i);
+        }
+        for (; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+}
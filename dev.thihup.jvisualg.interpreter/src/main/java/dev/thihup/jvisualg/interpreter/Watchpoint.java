@@ -0,0 +1,37 @@
+package dev.thihup.jvisualg.interpreter;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+// Pauses the debugger right after a write changes the variable, or the array cell when indexes are
+// given, to a value the condition accepts. A watch on a whole vetor also sees writes to its cells, and
+// a watch on a registro, or on a vetor of them, sees writes to their fields with the field's new value.
+// Writes to the same vetor or registro through another name, such as a parameter, count as well.
+public record Watchpoint(String variable, List<Integer> indexes, Predicate<Object> condition) {
+
+    public Watchpoint {
+        // Names are case insensitive and the program's identifiers are lowercased by the parser
+        variable = variable.toLowerCase();
+        indexes = List.copyOf(indexes);
+        if (indexes.size() > 2) {
+            throw new IllegalArgumentException("Arrays have at most two dimensions");
+        }
+    }
+
+    public static Watchpoint onChange(String variable, int... indexes) {
+        return when(variable, _ -> true, indexes);
+    }
+
+    public static Watchpoint when(String variable, Predicate<Object> condition, int... indexes) {
+        return new Watchpoint(variable, IntStream.of(indexes).boxed().toList(), condition);
+    }
+
+    boolean watches(int index, int index2) {
+        return switch (indexes.size()) {
+            case 0 -> true;
+            case 1 -> index2 == -1 && indexes.getFirst() == index;
+            default -> indexes.getFirst() == index && indexes.getLast() == index2;
+        };
+    }
+}
@@ -3,7 +3,12 @@ import org.jspecify.annotations.NullMarked;
 @NullMarked
 module dev.thihup.jvisualg.interpreter {
     requires dev.thihup.jvisualg.frontend;
+    requires java.management;
+    requires jdk.jfr;
+    // Incubating, so only read when the launcher adds it; ArrayKernels falls back to scalar loops otherwise.
+    // javac warns about using an incubating module on every build, which is expected.
+    requires static jdk.incubator.vector;
     requires static org.jspecify;
 
-    exports dev.thihup.jvisualg.interpreter to dev.thihup.jvisualg.ide;
+    exports dev.thihup.jvisualg.interpreter to dev.thihup.jvisualg.ide, dev.thihup.jvisualg.batch;
 }
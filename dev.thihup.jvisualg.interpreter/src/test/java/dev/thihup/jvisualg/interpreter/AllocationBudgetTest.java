@@ -0,0 +1,163 @@
+package dev.thihup.jvisualg.interpreter;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Bytes allocated by the hot paths of the interpreter, checked against the budgets in
+// allocation-budgets.properties. Run with -Djvisualg.updateAllocationBudgets=true to
+// record new budgets (measured value plus 25% headroom) after an intended change.
+class AllocationBudgetTest {
+
+    private static final String BUDGETS = "allocation-budgets.properties";
+    private static final Path BUDGETS_SOURCE = Path.of("src/test/resources/dev/thihup/jvisualg/interpreter", BUDGETS);
+    private static final boolean UPDATE = Boolean.getBoolean("jvisualg.updateAllocationBudgets");
+    private static final Map<String, Long> MEASURED = new ConcurrentHashMap<>();
+
+    // com.sun.management lives in jdk.management, which the interpreter module does not read
+    private static final MethodHandle CURRENT_THREAD_ALLOCATED_BYTES;
+
+    static {
+        try {
+            Class<?> threadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+            CURRENT_THREAD_ALLOCATED_BYTES = MethodHandles.publicLookup()
+                    .findVirtual(threadMXBean, "getCurrentThreadAllocatedBytes", MethodType.methodType(long.class))
+                    .asType(MethodType.methodType(long.class, ThreadMXBean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final int SMALL = 2_000;
+    private static final int LARGE = 6_000;
+
+    @Test
+    void loopIteration() {
+        assertWithinBudget("loop.iteration", perIteration("x <- x + 1"));
+    }
+
+    @Test
+    void subprogramCall() {
+        assertWithinBudget("subprogram.call", perIteration("x <- identidade(i)") - perIteration("x <- i"));
+    }
+
+    @Test
+    void escrevaItem() {
+        assertWithinBudget("escreva.item", (perIteration("escreva(i, i, i, i)") - perIteration("escreva(i)")) / 3);
+    }
+
+    // The difference between two loop lengths cancels parsing, linking and everything else done once per run
+    private static long perIteration(String body) {
+        PreparedProgram small = program(body, SMALL);
+        PreparedProgram large = program(body, LARGE);
+        // Warm up so the budget reflects compiled code rather than the bytecode interpreter
+        for (int i = 0; i < 20; i++) {
+            run(small);
+            run(large);
+        }
+        long smallBytes = Long.MAX_VALUE;
+        long largeBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            smallBytes = Math.min(smallBytes, allocatedBytes(small));
+            largeBytes = Math.min(largeBytes, allocatedBytes(large));
+        }
+        return Math.max(0, (largeBytes - smallBytes) / (LARGE - SMALL));
+    }
+
+    private static PreparedProgram program(String body, int iterations) {
+        return PreparedProgram.prepare("""
+                algoritmo "alocacao"
+                var
+                   i, x: inteiro
+                funcao identidade(n: inteiro): inteiro
+                inicio
+                   retorne n
+                fimfuncao
+                inicio
+                   para i de 1 ate %d faca
+                      %s
+                   fimpara
+                fimalgoritmo
+                """.formatted(iterations, body));
+    }
+
+    private static long allocatedBytes(PreparedProgram program) {
+        long before = currentThreadAllocatedBytes();
+        run(program);
+        return currentThreadAllocatedBytes() - before;
+    }
+
+    private static void run(PreparedProgram program) {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), _ -> {
+        }));
+        interpreter.run(program);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+    }
+
+    static long currentThreadAllocatedBytes() {
+        try {
+            return (long) CURRENT_THREAD_ALLOCATED_BYTES.invokeExact(ManagementFactory.getThreadMXBean());
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void assertWithinBudget(String name, long bytes) {
+        MEASURED.put(name, bytes);
+        if (UPDATE) {
+            return;
+        }
+        Properties budgets = budgets();
+        String budget = budgets.getProperty(name);
+        assertNotNull(budget, "No allocation budget for " + name + "; run with -Djvisualg.updateAllocationBudgets=true");
+        assertTrue(bytes <= Long.parseLong(budget), () -> name + " allocates " + bytes + " bytes, over its budget of " + budget);
+    }
+
+    private static Properties budgets() {
+        Properties budgets = new Properties();
+        try (InputStream input = AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+            if (input != null) {
+                budgets.load(input);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return budgets;
+    }
+
+    @AfterAll
+    static void updateBudgets() throws IOException {
+        if (!UPDATE) {
+            return;
+        }
+        Map<String, Long> budgets = new TreeMap<>();
+        budgets().forEach((key, value) -> budgets.put((String) key, Long.parseLong((String) value)));
+        MEASURED.forEach((name, bytes) -> budgets.put(name, bytes + bytes / 4));
+        Files.createDirectories(BUDGETS_SOURCE.getParent());
+        try (Writer writer = Files.newBufferedWriter(BUDGETS_SOURCE, StandardCharsets.ISO_8859_1)) {
+            writer.write("# Bytes allocated per operation, written by AllocationBudgetTest with -Djvisualg.updateAllocationBudgets=true\n");
+            for (Map.Entry<String, Long> budget : budgets.entrySet()) {
+                writer.write(budget.getKey() + "=" + budget.getValue() + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package dev.thihup.jvisualg.interpreter;
+
+import dev.thihup.jvisualg.examples.ExamplesBase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs every example under each engine with scripted input and compares the output against the
+// golden files next to this class. Wall time and allocated bytes depend on the machine, so they are
+// only checked against baseline.json with -Djvisualg.performanceTests=true. Run with
+// -Djvisualg.updateGoldens=true to rewrite both after an intended change.
+@Isolated("wall time and allocation measurements")
+class GoldenOutputTest {
+
+    private static final Path GOLDEN_SOURCE = Path.of("src/test/resources/dev/thihup/jvisualg/interpreter/golden");
+    private static final boolean UPDATE = Boolean.getBoolean("jvisualg.updateGoldens");
+    private static final boolean MEASURE = UPDATE || Boolean.getBoolean("jvisualg.performanceTests");
+    private static final Map<String, Baseline> MEASURED = new ConcurrentHashMap<>();
+
+    // Menus and clocks in the interactive examples loop forever; these bound every run. The output
+    // limit stops all engines at the same point, the step limit only catches loops that never write
+    private static final int MAX_INPUTS = 50;
+    private static final long OUTPUT_LIMIT = 20_000;
+    private static final long STEP_LIMIT = 2_000_000;
+    private static final int TIMED_RUNS = 3;
+
+    private static final double TIME_TOLERANCE = 3.0;
+    private static final long TIME_SLACK_NANOS = 100_000_000;
+    private static final double ALLOCATION_TOLERANCE = 1.5;
+    private static final long ALLOCATION_SLACK_BYTES = 256 * 1024;
+
+    private static final Pattern BASELINE_ENTRY = Pattern.compile(
+            "\"(.+)\": \\{\"nanos\": (\\d+), \"allocatedBytes\": (\\d+)}");
+
+    record Baseline(long nanos, long allocatedBytes) {}
+
+    record Example(String name, Path path) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    enum Engine {
+        TREE_WALKER(_ -> {}),
+        MEMOIZED(interpreter -> interpreter.setMemoizationCapacity(1024)),
+        VECTORIZED(interpreter -> interpreter.setLoopVectorization(LoopVectorization.STRICT)),
+        PARALLEL_LOOPS(interpreter -> {
+            interpreter.setParallelLoops(true);
+            interpreter.setParallelLoopThreshold(1);
+        }),
+        INSTRUMENTED(interpreter -> {
+            interpreter.setProfiling(true);
+            interpreter.addExecutionListener(new ExecutionListener() {});
+        });
+
+        private final Consumer<Interpreter> configuration;
+
+        Engine(Consumer<Interpreter> configuration) {
+            this.configuration = configuration;
+        }
+    }
+
+    record Run(String output, String outcome) {
+        String golden() {
+            return output + "=== " + outcome + "\n";
+        }
+    }
+
+    private static Stream<Example> examples() throws Throwable {
+        return Stream.of("v25", "v30", "custom", "interactive")
+                .flatMap(GoldenOutputTest::examples)
+                .sorted((a, b) -> a.name().compareTo(b.name()));
+    }
+
+    private static Stream<Example> examples(String folder) {
+        try {
+            return ExamplesBase.examples(folder).map(path -> new Example(folder + "/" + path.getFileName(), path));
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("examples")
+    void testGoldenOutput(Example example) throws IOException {
+        String code = Files.readString(example.path(), StandardCharsets.ISO_8859_1);
+
+        Run reference = run(code, example.name(), Engine.TREE_WALKER);
+        for (Engine engine : Engine.values()) {
+            assertEquals(reference, run(code, example.name(), engine), () -> engine + " differs from " + Engine.TREE_WALKER);
+        }
+
+        String golden = reference.golden();
+        if (UPDATE) {
+            Path goldenFile = GOLDEN_SOURCE.resolve(example.name() + ".out");
+            Files.createDirectories(goldenFile.getParent());
+            Files.writeString(goldenFile, golden, StandardCharsets.UTF_8);
+            return;
+        }
+
+        try (InputStream input = GoldenOutputTest.class.getResourceAsStream("golden/" + example.name() + ".out")) {
+            assertNotNull(input, "No golden output for " + example.name() + "; run with -Djvisualg.updateGoldens=true");
+            assertEquals(new String(input.readAllBytes(), StandardCharsets.UTF_8), golden);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("examples")
+    @EnabledIf("measuring")
+    void testBaseline(Example example) throws IOException {
+        String code = Files.readString(example.path(), StandardCharsets.ISO_8859_1);
+        long nanos = Long.MAX_VALUE;
+        long allocatedBytes = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long allocatedBefore = AllocationBudgetTest.currentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            run(code, example.name(), Engine.TREE_WALKER);
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            allocatedBytes = Math.min(allocatedBytes, AllocationBudgetTest.currentThreadAllocatedBytes() - allocatedBefore);
+        }
+        Baseline measured = new Baseline(nanos, allocatedBytes);
+        MEASURED.put(example.name(), measured);
+        if (UPDATE) {
+            return;
+        }
+
+        Baseline baseline = baseline(example.name()).orElseThrow(() ->
+                new AssertionError("No baseline for " + example.name() + "; run with -Djvisualg.updateGoldens=true"));
+        assertTrue(measured.nanos() <= Math.max(baseline.nanos() * TIME_TOLERANCE, baseline.nanos() + TIME_SLACK_NANOS),
+                () -> example.name() + " took " + measured.nanos() + " ns, baseline is " + baseline.nanos() + " ns");
+        assertTrue(measured.allocatedBytes() <= baseline.allocatedBytes() * ALLOCATION_TOLERANCE + ALLOCATION_SLACK_BYTES,
+                () -> example.name() + " allocated " + measured.allocatedBytes() + " bytes, baseline is " + baseline.allocatedBytes() + " bytes");
+    }
+
+    static boolean measuring() {
+        return MEASURE;
+    }
+
+    private static Run run(String code, String name, Engine engine) {
+        // Seeded by name so every engine and every run of a program sees the same input and random numbers
+        SplittableRandom random = new SplittableRandom(name.hashCode());
+        int[] inputs = {0};
+        StringBuilder output = new StringBuilder();
+        IO io = new IO(inputRequest -> {
+            if (inputs[0]++ == MAX_INPUTS) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            return CompletableFuture.completedFuture(Optional.of(switch (inputRequest.type()) {
+                case INTEIRO -> new InputValue.InteiroValue(random.nextInt(1, 10));
+                case REAL -> new InputValue.RealValue(random.nextInt(100, 1000) / 100.0);
+                case LOGICO -> new InputValue.LogicoValue(random.nextBoolean());
+                case CARACTER -> new InputValue.CaracterValue(random.ints(5, 65, 91)
+                        .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString());
+            }));
+        }, event -> {
+            switch (event) {
+                case OutputEvent.Text(String text) -> output.append(text);
+                case OutputEvent.Clear _ -> output.append("[limpatela]\n");
+                case OutputEvent.ChangeColor _ -> {
+                }
+            }
+        });
+
+        Interpreter interpreter = new Interpreter(io);
+        interpreter.setRandomSeed(name.hashCode());
+        interpreter.setOutputLimit(OUTPUT_LIMIT);
+        interpreter.setStepLimit(STEP_LIMIT);
+        engine.configuration.accept(interpreter);
+        interpreter.run(code);
+
+        // Class names only: messages can carry hash codes and other run-specific details
+        String outcome = switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable throwable) ->
+                    "CompletedExceptionally " + throwable.getClass().getName().substring(throwable.getClass().getPackageName().length() + 1);
+            case InterpreterState state -> state.getClass().getSimpleName();
+        };
+        return new Run(output.toString(), outcome);
+    }
+
+    private static Optional<Baseline> baseline(String name) {
+        return Optional.ofNullable(Baselines.STORED.get(name));
+    }
+
+    private static final class Baselines {
+        static final Map<String, Baseline> STORED = read();
+
+        private static Map<String, Baseline> read() {
+            Map<String, Baseline> baselines = new TreeMap<>();
+            try (InputStream input = GoldenOutputTest.class.getResourceAsStream("golden/baseline.json")) {
+                if (input == null) {
+                    return baselines;
+                }
+                Matcher matcher = BASELINE_ENTRY.matcher(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                while (matcher.find()) {
+                    baselines.put(matcher.group(1), new Baseline(Long.parseLong(matcher.group(2)), Long.parseLong(matcher.group(3))));
+                }
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return baselines;
+        }
+    }
+
+    @AfterAll
+    static void updateBaseline() throws IOException {
+        if (!UPDATE) {
+            return;
+        }
+        Map<String, Baseline> baselines = new TreeMap<>(Baselines.STORED);
+        baselines.putAll(MEASURED);
+        Files.createDirectories(GOLDEN_SOURCE);
+        try (Writer writer = Files.newBufferedWriter(GOLDEN_SOURCE.resolve("baseline.json"), StandardCharsets.UTF_8)) {
+            writer.write("{\n");
+            int remaining = baselines.size();
+            for (Map.Entry<String, Baseline> entry : baselines.entrySet()) {
+                Baseline baseline = entry.getValue();
+                writer.write("  \"%s\": {\"nanos\": %d, \"allocatedBytes\": %d}%s\n".formatted(
+                        entry.getKey(), baseline.nanos(), baseline.allocatedBytes(), --remaining > 0 ? "," : ""));
+            }
+            writer.write("}\n");
+        }
+    }
+}
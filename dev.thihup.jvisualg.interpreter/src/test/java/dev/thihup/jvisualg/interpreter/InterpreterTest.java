@@ -1,18 +1,36 @@
 package dev.thihup.jvisualg.interpreter;
 
 import dev.thihup.jvisualg.examples.ExamplesBase;
+import dev.thihup.jvisualg.examples.ProgramGenerator;
+import dev.thihup.jvisualg.frontend.BooleanEvaluation;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junitpioneer.jupiter.cartesian.CartesianTest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -465,6 +483,1248 @@ class InterpreterTest extends ExamplesBase {
                         """, stringWriter.toString());
     }
 
+    private static final String SHORT_CIRCUIT_PROGRAM = """
+            algoritmo "curtoCircuito"
+            var
+                v: vetor[1..3] de inteiro
+                i: inteiro
+            inicio
+                i <- 10
+                se (i <= 3) e (v[i] <> 0) entao
+                    escreval("e")
+                fimse
+                se (i > 3) ou (v[i] <> 0) entao
+                    escreval("ou")
+                fimse
+            fimalgoritmo
+            """;
+
+    @Test
+    void testShortCircuitBooleanEvaluation() {
+        StringWriter stringWriter = new StringWriter();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), s -> {
+            switch (s) {
+                case OutputEvent.Text(String text) -> stringWriter.write(text);
+                case OutputEvent.ChangeColor _, OutputEvent.Clear _ -> {
+                }
+            }
+        }));
+        interpreter.run(SHORT_CIRCUIT_PROGRAM);
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals("ou\n", stringWriter.toString());
+    }
+
+    @Test
+    void testStrictBooleanEvaluation() {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+        }));
+        interpreter.setBooleanEvaluation(BooleanEvaluation.STRICT);
+        interpreter.run(SHORT_CIRCUIT_PROGRAM);
+
+        switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(TypeException.IndexOutOfBounds.class, e);
+            default -> fail();
+        }
+    }
+
+    private static final String MEMOIZATION_PROGRAM = """
+            algoritmo "memo"
+            var
+               contador: inteiro
+            funcao fib(n: inteiro): inteiro
+            inicio
+               se n < 2 entao
+                  retorne n
+               fimse
+               retorne fib(n - 1) + fib(n - 2)
+            fimfuncao
+            funcao conta(n: inteiro): inteiro
+            inicio
+               contador <- contador + 1
+               retorne contador
+            fimfuncao
+            inicio
+               escreval(fib(15))
+               escreval(conta(1) + conta(1))
+            fimalgoritmo
+            """;
+
+    @Test
+    void testMemoization() {
+        StringWriter stringWriter = new StringWriter();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), s -> {
+            switch (s) {
+                case OutputEvent.Text(String text) -> stringWriter.write(text);
+                case OutputEvent.ChangeColor _, OutputEvent.Clear _ -> {
+                }
+            }
+        }));
+        interpreter.setMemoizationCapacity(1024);
+        interpreter.run(MEMOIZATION_PROGRAM);
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 610\n 3\n", stringWriter.toString());
+
+        List<MemoizationStatistics> statistics = interpreter.memoizationStatistics();
+        assertEquals(1, statistics.size());
+        MemoizationStatistics fib = statistics.getFirst();
+        assertEquals("fib", fib.function());
+        assertEquals(16, fib.misses());
+        assertEquals(13, fib.hits());
+    }
+
+    @Test
+    void testPreparedProgramSharedAcrossThreads() {
+        PreparedProgram program = PreparedProgram.prepare("""
+                algoritmo "quadrado"
+                var
+                   a: inteiro
+                funcao quadrado(n: inteiro): inteiro
+                inicio
+                   retorne n * n
+                fimfuncao
+                inicio
+                   leia(a)
+                   escreval(quadrado(a))
+                fimalgoritmo
+                """);
+
+        List<String> outputs = IntStream.rangeClosed(1, 16).parallel().mapToObj(i -> {
+            StringWriter stringWriter = new StringWriter();
+            InterpreterState state = Interpreter.run(program, new IO(_ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(i))), s -> {
+                if (s instanceof OutputEvent.Text(String text)) {
+                    stringWriter.write(text);
+                }
+            }));
+            assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, state);
+            return stringWriter.toString();
+        }).toList();
+
+        assertEquals(IntStream.rangeClosed(1, 16).mapToObj(i -> " " + i * i + "\n").toList(), outputs);
+    }
+
+    @Test
+    void testPreparedProgramReusedByInterpreter() {
+        PreparedProgram program = PreparedProgram.prepare(SHORT_CIRCUIT_PROGRAM);
+        StringWriter stringWriter = new StringWriter();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), s -> {
+            if (s instanceof OutputEvent.Text(String text)) {
+                stringWriter.write(text);
+            }
+        }));
+        interpreter.run(program);
+        interpreter.run(program);
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals("ou\nou\n", stringWriter.toString());
+    }
+
+    @Test
+    void testExecutionBudgets() {
+        String infiniteLoop = """
+                algoritmo "loop"
+                var
+                   i: inteiro
+                inicio
+                   enquanto verdadeiro faca
+                      i <- i + 1
+                   fimenquanto
+                fimalgoritmo
+                """;
+        String bigArray = """
+                algoritmo "vetor"
+                var
+                   v: vetor[1..1000000] de inteiro
+                inicio
+                fimalgoritmo
+                """;
+        String manyLines = """
+                algoritmo "saida"
+                var
+                   i: inteiro
+                inicio
+                   para i de 1 ate 1000 faca
+                      escreval("linha")
+                   fimpara
+                fimalgoritmo
+                """;
+
+        assertBudgetExceeded(LimitExceededException.Steps.class, infiniteLoop, interpreter -> interpreter.setStepLimit(10_000));
+        assertBudgetExceeded(LimitExceededException.CpuTime.class, infiniteLoop, interpreter -> interpreter.setCpuTimeLimit(Duration.ofMillis(100)));
+        assertBudgetExceeded(LimitExceededException.ArrayAllocation.class, bigArray, interpreter -> interpreter.setArrayAllocationLimit(1000));
+        assertBudgetExceeded(LimitExceededException.Output.class, manyLines, interpreter -> interpreter.setOutputLimit(100));
+    }
+
+    @Test
+    void testCpuTimeLimitNeedsCpuClock() throws InterruptedException {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+        }));
+        interpreter.setCpuTimeLimit(Duration.ofMillis(100));
+        // Virtual threads report no CPU time, so the limit cannot be enforced there
+        Thread.startVirtualThread(() -> interpreter.run("""
+                algoritmo "nada"
+                inicio
+                fimalgoritmo
+                """)).join();
+
+        switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(IllegalStateException.class, e);
+            default -> fail(interpreter.state().toString());
+        }
+    }
+
+    private static void assertBudgetExceeded(Class<? extends LimitExceededException> expected, String code, Consumer<Interpreter> configuration) {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+        }));
+        configuration.accept(interpreter);
+        interpreter.run(code);
+
+        switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(expected, e);
+            default -> fail();
+        }
+    }
+
+    @Test
+    void testProfilingRecursiveLine() {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+        }));
+        interpreter.setProfiling(true);
+        interpreter.run("""
+                algoritmo "recursao"
+                funcao soma(n: inteiro): inteiro
+                inicio
+                   se n = 0 entao retorne 0 senao retorne n + soma(n - 1) fimse
+                fimfuncao
+                inicio
+                   escreval(soma(3))
+                fimalgoritmo
+                """);
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        Map<Integer, Long> hits = interpreter.profile().lines().stream().collect(Collectors.toMap(Profile.LineProfile::line, Profile.LineProfile::hits));
+        // Every activation runs line 4 once, the nested call on that same line included
+        assertEquals(4, hits.get(4));
+        assertEquals(1, hits.get(7));
+    }
+
+    @Test
+    void testProfiling() {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+        }));
+        interpreter.setProfiling(true);
+        interpreter.run("""
+                algoritmo "perfil"
+                var
+                   i, soma: inteiro
+                funcao dobro(n: inteiro): inteiro
+                inicio
+                   retorne n * 2
+                fimfuncao
+                inicio
+                   para i de 1 ate 10 faca
+                      soma <- soma + dobro(i)
+                   fimpara
+                   escreval(soma)
+                fimalgoritmo
+                """);
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        Profile profile = interpreter.profile();
+        Map<Integer, Long> hits = profile.lines().stream().collect(Collectors.toMap(Profile.LineProfile::line, Profile.LineProfile::hits));
+        assertEquals(10, hits.get(6));
+        assertEquals(1, hits.get(9));
+        assertEquals(10, hits.get(10));
+        assertEquals(1, hits.get(12));
+        assertEquals(List.of("dobro"), profile.subprograms().stream().map(Profile.SubprogramProfile::name).toList());
+        assertEquals(10, profile.subprograms().getFirst().calls());
+        assertTrue(profile.toJson().startsWith("{\"lines\":[{\"line\":6,\"hits\":10,"));
+    }
+
+    @Test
+    void testGeneratedProgramsMatchTheirOracle() {
+        for (long seed = 0; seed < 12; seed++) {
+            ProgramGenerator.GeneratedProgram program = ProgramGenerator.generate(ProgramGenerator.Options.defaults(seed)
+                    .withSubprograms(1 + (int) (seed % 6))
+                    .withNestingDepth((int) (seed % 4))
+                    .withRegistros((int) (seed % 3)));
+            StringBuilder output = new StringBuilder();
+            Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), outputEvent -> {
+                if (outputEvent instanceof OutputEvent.Text(String text)) {
+                    output.append(text);
+                }
+            }));
+            interpreter.run(program.source());
+
+            assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state(), program::source);
+            assertEquals(program.expectedOutput(), output.toString(), program::source);
+        }
+    }
+
+    @Test
+    void testSamplingProfiler() {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+        }));
+        interpreter.setSamplingInterval(Duration.ofMillis(1));
+        interpreter.run("""
+                algoritmo "amostra"
+                var
+                   i, soma: inteiro
+                funcao quadrado(n: inteiro): inteiro
+                inicio
+                   retorne n * n
+                fimfuncao
+                inicio
+                   para i de 1 ate 50000 faca
+                      soma <- (soma + quadrado(i % 100)) % 1000
+                   fimpara
+                fimalgoritmo
+                """);
+
+        // Which stacks the timer catches depends on the machine; SamplingProfilerTest checks them deterministically
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        SampledProfile profile = interpreter.sampledProfile();
+        assertTrue(profile.stacks().keySet().stream().allMatch(stack -> stack.startsWith("amostra:")), profile::folded);
+        assertTrue(profile.folded().lines().allMatch(line -> line.matches("[^ ]+ \\d+")), profile::folded);
+    }
+
+    @Test
+    void testCoverage() {
+        PreparedProgram program = PreparedProgram.prepare("""
+                algoritmo "cobertura"
+                var
+                   n, i: inteiro
+                inicio
+                   leia(n)
+                   se n > 3 entao
+                      escreval("grande")
+                   senao
+                      escreval("pequeno")
+                   fimse
+                   escolha n
+                   caso 1
+                      escreval("um")
+                   caso 2, 3
+                      escreval("dois ou tres")
+                   outrocaso
+                      escreval("outro")
+                   fimescolha
+                   enquanto i < n faca
+                      i <- i + 1
+                   fimenquanto
+                fimalgoritmo
+                """);
+        Coverage coverage = new Coverage(program);
+        for (int input : new int[]{1, 0}) {
+            Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(input))), _ -> {
+            }));
+            interpreter.setCoverage(coverage);
+            interpreter.run(program);
+            assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        }
+
+        assertEquals(2, coverage.runs());
+        assertEquals(List.of(7, 15), coverage.uncoveredLines());
+        assertEquals(List.of(
+                new Coverage.Branch(6, 0, false), new Coverage.Branch(6, 1, true),
+                new Coverage.Branch(11, 0, true), new Coverage.Branch(11, 1, false), new Coverage.Branch(11, 2, true),
+                new Coverage.Branch(19, 0, true), new Coverage.Branch(19, 1, true)
+        ), coverage.branches());
+        assertEquals(5 / 7.0, coverage.branchRate(), 1e-9);
+        assertTrue(coverage.isCovered(20));
+        assertEquals(1L << 20, coverage.lineBitmap()[0] & (1L << 20));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new UnsupportedOperationException()), _ -> {
+            }));
+            interpreter.setCoverage(coverage);
+            interpreter.run(PreparedProgram.prepare("""
+                    algoritmo "outro"
+                    inicio
+                    fimalgoritmo
+                    """));
+            if (interpreter.state() instanceof InterpreterState.CompletedExceptionally(Throwable e)) {
+                throw e;
+            }
+        });
+    }
+
+    @Test
+    void testExecutionListener() {
+        List<String> trace = new ArrayList<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(3))), _ -> {
+        }));
+        interpreter.addExecutionListener(new ExecutionListener() {
+            @Override
+            public void statementEnter(int line) {
+                trace.add("line " + line);
+            }
+
+            @Override
+            public void subprogramEnter(String name, int line) {
+                trace.add("enter " + name + " " + line);
+            }
+
+            @Override
+            public void subprogramExit(String name) {
+                trace.add("exit " + name);
+            }
+
+            @Override
+            public void assign(String variable, Object value) {
+                trace.add(variable + " <- " + value);
+            }
+
+            @Override
+            public void read(String variable, Object value) {
+                trace.add("leia " + variable + " " + value);
+            }
+
+            @Override
+            public void write(String text) {
+                trace.add("escreva " + text.strip());
+            }
+        });
+        interpreter.run("""
+                algoritmo "ouvinte"
+                var
+                   n: inteiro
+                procedimento mostra(x: inteiro)
+                inicio
+                   escreva(x)
+                fimprocedimento
+                inicio
+                   leia(n)
+                   n <- n + 1
+                   mostra(n)
+                fimalgoritmo
+                """);
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(List.of("line 9", "leia n 3", "line 10", "n <- 4", "line 11", "enter mostra 11",
+                "line 6", "line 6", "escreva 4", "exit mostra"), trace);
+    }
+
+    @Test
+    void testArquivoInput() throws Exception {
+        Path input = Files.createTempFile("jvisualg", ".txt");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.writeBytes(" verdadeiro\r\n-42\r3.25\n2.5e2\nAção\n".getBytes(StandardCharsets.UTF_8));
+            bytes.writeBytes("Ação".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(input, bytes.toByteArray());
+
+            StringBuilder output = new StringBuilder();
+            Interpreter interpreter = new Interpreter(new IO(
+                    _ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(7))),
+                    event -> {
+                        if (event instanceof OutputEvent.Text(String text)) {
+                            output.append(text);
+                        }
+                    }));
+            interpreter.run("""
+                    algoritmo "arquivo"
+                    arquivo "%s"
+                    var
+                       x: logico
+                       y, n: inteiro
+                       z, w: real
+                       a, b: caracter
+                    inicio
+                       leia(x, y, z, w, a, b)
+                       leia(n)
+                       escreval(x, y, z, w, " ", a, " ", b, n)
+                    fimalgoritmo
+                    """.formatted(input.toString().replace("\\", "/")));
+
+            assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+            // The last line has no terminator and is not valid UTF-8; once the file runs out input comes from IO
+            assertEquals(" VERDADEIRO -42 3.25 250 Ação Ação 7\n", output.toString());
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    @Test
+    void testSynchronousInput() {
+        StringBuilder output = new StringBuilder();
+        Interpreter interpreter = new Interpreter(IO.synchronous(InputSource.ofLines(List.of(" 3 ", "2,5", "verdadeiro", "texto")),
+                event -> {
+                    if (event instanceof OutputEvent.Text(String text)) {
+                        output.append(text);
+                    }
+                }));
+        interpreter.run("""
+                algoritmo "sincrono"
+                var
+                   n: inteiro
+                   x: real
+                   l: logico
+                   c: caracter
+                inicio
+                   leia(n, x, l, c)
+                   escreval(n + 1, x * 2, l, " ", c)
+                   leia(n)
+                fimalgoritmo
+                """);
+
+        assertEquals(" 4 5 VERDADEIRO texto\n", output.toString());
+        // Running out of input ends the run exactly like an unanswered interactive read
+        switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(NoSuchElementException.class, e);
+            default -> fail(interpreter.state().toString());
+        }
+    }
+
+    @Test
+    void testParallelLoops() {
+        String program = """
+                algoritmo "paralelo"
+                var
+                   i, j: inteiro
+                   k, soma: real
+                   v: vetor[1..3000] de real
+                   w: vetor[1..3000] de inteiro
+                   m: vetor[1..300, 1..20] de inteiro
+                funcao quadrado(n: inteiro): inteiro
+                inicio
+                   retorne n * n
+                fimfuncao
+                inicio
+                   k <- 2.5
+                   para i de 1 ate 3000 faca
+                      v[i] <- raizq(i) * k
+                   fimpara
+                   para i de 300 ate 1 passo -1 faca
+                      para j de 1 ate 20 faca
+                         se j % 2 = 0 entao
+                            m[i, j] <- quadrado(i) + j
+                         senao
+                            m[i, j] <- -j
+                         fimse
+                      fimpara
+                   fimpara
+                   para i de 2 ate 3000 faca
+                      w[i] <- w[i - 1] + 1
+                   fimpara
+                   soma <- 0
+                   para i de 1 ate 3000 faca
+                      soma <- soma + v[i]
+                   fimpara
+                   escreval(soma, m[300, 20], m[1, 1], w[3000], i, j)
+                fimalgoritmo
+                """;
+
+        ParallelRun sequential = runParallelLoops(program, false);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, sequential.state());
+        assertEquals(0, sequential.parallelLoops());
+        // The v and m loops go to the pool; w carries a dependence and soma is a reduction
+        ParallelRun parallel = runParallelLoops(program, true);
+        assertEquals(2, parallel.parallelLoops());
+        assertEquals(new ParallelRun(sequential.output(), sequential.state(), sequential.steps(), 2), parallel);
+
+        ParallelRun failing = runParallelLoops("""
+                algoritmo "falha"
+                var
+                   i: inteiro
+                   v: vetor[1..1000] de inteiro
+                inicio
+                   para i de 1 ate 1000 faca
+                      v[i] <- 10 div (i - 700)
+                   fimpara
+                fimalgoritmo
+                """, true);
+        switch (failing.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(ArithmeticException.class, e);
+            default -> fail(failing.state().toString());
+        }
+    }
+
+    @Test
+    void testParallelLoopsShareStepLimit() {
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), _ -> {}));
+        interpreter.setParallelLoops(true);
+        interpreter.setParallelLoopThreshold(100);
+        interpreter.setStepLimit(20_000);
+        interpreter.run("""
+                algoritmo "limite"
+                var
+                   i: inteiro
+                   v: vetor[1..100000] de inteiro
+                inicio
+                   para i de 1 ate 100000 faca
+                      v[i] <- i * 2
+                   fimpara
+                fimalgoritmo
+                """);
+
+        switch (interpreter.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(LimitExceededException.Steps.class, e);
+            default -> fail(interpreter.state().toString());
+        }
+        assertEquals(1, interpreter.parallelLoopsRun());
+        // Each worker may finish the iteration it is in, but no worker gets the whole budget for itself
+        assertTrue(interpreter.steps() < 20_000 + 1_000, () -> "Ran " + interpreter.steps() + " steps");
+    }
+
+    private record ParallelRun(String output, InterpreterState state, long steps, int parallelLoops) {
+    }
+
+    private static ParallelRun runParallelLoops(String program, boolean parallel) {
+        StringBuilder output = new StringBuilder();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }));
+        interpreter.setParallelLoops(parallel);
+        interpreter.setParallelLoopThreshold(100);
+        interpreter.run(program);
+        return new ParallelRun(output.toString(), interpreter.state(), interpreter.steps(), interpreter.parallelLoopsRun());
+    }
+
+    @Test
+    void testLoopVectorization() {
+        // Reais that are multiples of 1/8 add up exactly in any order, so relaxed mode has to agree as well
+        String program = """
+                algoritmo "vetorizado"
+                var
+                   i, si, di, mi: inteiro
+                   sr, dr, mr: real
+                   a, b: vetor[1..1000] de inteiro
+                   x, y: vetor[1..1000] de real
+                inicio
+                   para i de 1 ate 1000 faca
+                      a[i] <- (i * 37) % 101 - 50
+                      b[i] <- i % 7
+                      x[i] <- a[i] / 8
+                      y[i] <- b[i] * 0.5
+                   fimpara
+                   para i de 1 ate 1000 faca
+                      si <- si + a[i]
+                   fimpara
+                   para i de 1 ate 1000 faca
+                      di <- a[i] * b[i] + di
+                   fimpara
+                   mi <- -1000
+                   para i de 1 ate 1000 faca
+                      se a[i] > mi entao
+                         mi <- a[i]
+                      fimse
+                   fimpara
+                   para i de 3 ate 998 faca
+                      sr <- sr + x[i]
+                   fimpara
+                   para i de 1 ate 1000 faca
+                      dr <- dr + x[i] * y[i]
+                   fimpara
+                   mr <- -1000
+                   para i de 1 ate 1000 faca
+                      se mr < x[i] entao
+                         mr <- x[i]
+                      fimse
+                   fimpara
+                   para i de 1 ate 1000 faca
+                      y[i] <- x[i] * 3
+                   fimpara
+                   para i de 1 ate 1000 faca
+                      x[i] <- 2 * a[i]
+                   fimpara
+                   escreval(si, di, mi, sr, dr, mr, y[1000], x[999], i)
+                fimalgoritmo
+                """;
+
+        VectorizedRun interpreted = runVectorized(program, LoopVectorization.OFF);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreted.state());
+        assertEquals(0, interpreted.kernelLoops());
+        // Every loop but the first runs as a kernel, and kernels are charged the interpreted steps except
+        // for the two maxima, which skip the assignments that raise them
+        for (LoopVectorization loopVectorization : List.of(LoopVectorization.STRICT, LoopVectorization.RELAXED)) {
+            VectorizedRun vectorized = runVectorized(program, loopVectorization);
+            assertEquals(interpreted.output(), vectorized.output(), loopVectorization::name);
+            assertEquals(interpreted.state(), vectorized.state(), loopVectorization::name);
+            assertEquals(8, vectorized.kernelLoops(), loopVectorization::name);
+            assertTrue(vectorized.steps() < interpreted.steps(), loopVectorization::name);
+        }
+
+        // Values a kernel does not handle leave the loop to the interpreter, which reports the error
+        VectorizedRun mismatched = runVectorized("""
+                algoritmo "inteiro"
+                var
+                   i, s: inteiro
+                   x: vetor[1..10] de real
+                inicio
+                   para i de 1 ate 10 faca
+                      s <- s + x[i]
+                   fimpara
+                fimalgoritmo
+                """, LoopVectorization.STRICT);
+        switch (mismatched.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(TypeException.InvalidAssignment.class, e);
+            default -> fail(mismatched.state().toString());
+        }
+        VectorizedRun outOfBounds = runVectorized("""
+                algoritmo "limites"
+                var
+                   i, s: inteiro
+                   a: vetor[1..10] de inteiro
+                inicio
+                   para i de 1 ate 20 faca
+                      s <- s + a[i]
+                   fimpara
+                fimalgoritmo
+                """, LoopVectorization.STRICT);
+        switch (outOfBounds.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(TypeException.IndexOutOfBounds.class, e);
+            default -> fail(outOfBounds.state().toString());
+        }
+    }
+
+    @Test
+    void testVectorKernels() {
+        // Surefire adds the incubator module, so the tests run the kernels the launchers pick
+        ArrayKernels best = ArrayKernels.best();
+        assertInstanceOf(VectorKernels.class, best);
+        ArrayKernels scalar = new ScalarKernels();
+        Random random = new Random(7);
+        // Lengths around the vector size leave every possible tail
+        for (int length = 0; length < 70; length++) {
+            int[] ints = random.ints(length).toArray();
+            int[] otherInts = random.ints(length).toArray();
+            double[] doubles = random.doubles(length, -1e6, 1e6).toArray();
+            double[] otherDoubles = random.doubles(length, -1e6, 1e6).toArray();
+            String message = "length " + length;
+
+            assertEquals(scalar.sum(ints), best.sum(ints), message);
+            assertEquals(scalar.dot(ints, otherInts), best.dot(ints, otherInts), message);
+            assertEquals(scalar.max(Integer.MIN_VALUE, ints), best.max(Integer.MIN_VALUE, ints), message);
+            assertEquals(scalar.sum(0.5, doubles, false), best.sum(0.5, doubles, false), message);
+            assertEquals(scalar.dot(0.5, doubles, otherDoubles, false), best.dot(0.5, doubles, otherDoubles, false), message);
+            assertEquals(scalar.sum(0.5, doubles, false), best.sum(0.5, doubles, true), 1e-3, message);
+            assertEquals(scalar.dot(0.5, doubles, otherDoubles, false), best.dot(0.5, doubles, otherDoubles, true), 1, message);
+
+            int[] scaledInts = ints.clone();
+            int[] expectedInts = ints.clone();
+            best.scale(scaledInts, -3);
+            scalar.scale(expectedInts, -3);
+            assertArrayEquals(expectedInts, scaledInts, message);
+            double[] scaledDoubles = doubles.clone();
+            double[] expectedDoubles = doubles.clone();
+            best.scale(scaledDoubles, 1.5);
+            scalar.scale(expectedDoubles, 1.5);
+            assertArrayEquals(expectedDoubles, scaledDoubles, message);
+        }
+    }
+
+    private record VectorizedRun(String output, InterpreterState state, long steps, int kernelLoops) {
+    }
+
+    private static VectorizedRun runVectorized(String program, LoopVectorization loopVectorization) {
+        StringBuilder output = new StringBuilder();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }));
+        interpreter.setLoopVectorization(loopVectorization);
+        interpreter.run(program);
+        return new VectorizedRun(output.toString(), interpreter.state(), interpreter.steps(), interpreter.arrayLoopsRun());
+    }
+
+    @Test
+    void testRandomSeed() {
+        String program = """
+                algoritmo "semente"
+                var
+                   n: inteiro
+                   c: caracter
+                inicio
+                   escreval(randi(1000000), rand)
+                   aleatorio
+                   leia(n, c)
+                   escreval(n, c)
+                fimalgoritmo
+                """;
+
+        assertEquals(runWithSeed(program, 42), runWithSeed(program, 42));
+        assertNotEquals(runWithSeed(program, 42), runWithSeed(program, 43));
+    }
+
+    @Test
+    void testRecordingKeepsRandomNumbers() {
+        String program = """
+                algoritmo "sorteio"
+                var
+                   i: inteiro
+                inicio
+                   para i de 1 ate 5 faca
+                      escreval(randi(100), rand)
+                   fimpara
+                fimalgoritmo
+                """;
+        List<String> outputs = new ArrayList<>();
+        for (boolean recording : new boolean[]{false, true}) {
+            StringBuilder output = new StringBuilder();
+            Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+                if (event instanceof OutputEvent.Text(String text)) {
+                    output.append(text);
+                }
+            }));
+            interpreter.setRandomSeed(42);
+            interpreter.setRecording(recording);
+            interpreter.run(program);
+            assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+            outputs.add(output.toString());
+        }
+        assertEquals(outputs.getFirst(), outputs.getLast());
+    }
+
+    private static String runWithSeed(String program, long seed) {
+        StringBuilder output = new StringBuilder();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }));
+        interpreter.setRandomSeed(seed);
+        interpreter.run(program);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        return output.toString();
+    }
+
+    @Test
+    void testTimeTravel() throws Exception {
+        String program = """
+                algoritmo "volta"
+                var
+                   i, s: inteiro
+                   v: vetor[1..3] de inteiro
+                inicio
+                   s <- 10
+                   para i de 1 ate 3 faca
+                      v[i] <- i * i
+                      s <- s + v[i]
+                   fimpara
+                   pausa
+                   escreval(s)
+                fimalgoritmo
+                """;
+        StringBuilder output = new StringBuilder();
+        BlockingQueue<ProgramState> states = new LinkedBlockingQueue<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }), states::add);
+        // A checkpoint every two statements and only three kept, so the first statements fall out of the history
+        interpreter.setTimeTravel(2, 3);
+        Thread run = Thread.startVirtualThread(() -> interpreter.run(program));
+
+        assertTimeState(states.take(), 11, 4, 24, 9);
+        // The callback runs just before the interpreter starts waiting
+        while (!interpreter.stepBack()) {
+            Thread.sleep(1);
+        }
+        assertTimeState(states.take(), 9, 3, 15, 9);
+        assertTrue(interpreter.runBackToLine(8));
+        assertTimeState(states.take(), 8, 3, 15, 0);
+        assertTrue(interpreter.stepBack());
+        assertTimeState(states.take(), 9, 2, 11, 0);
+        assertTrue(interpreter.stepBack());
+        assertTimeState(states.take(), 8, 2, 11, 0);
+        assertFalse(interpreter.stepBack());
+        assertFalse(interpreter.runBackToLine(6));
+
+        interpreter.step();
+        assertTimeState(states.take(), 9, 2, 11, 0);
+        interpreter.step();
+        interpreter.step();
+        assertTimeState(states.take(), 8, 3, 15, 0);
+        assertTimeState(states.take(), 9, 3, 15, 9);
+        interpreter.step();
+        assertTimeState(states.take(), 11, 4, 24, 9);
+
+        interpreter.continueExecution();
+        run.join();
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 24\n", output.toString());
+    }
+
+    @Test
+    void testTimeTravelRecordFields() throws Exception {
+        String program = """
+                algoritmo "campos"
+                tipo
+                   ponto = registro
+                      x: inteiro
+                      y: inteiro
+                   fimregistro
+                var
+                   i: inteiro
+                   p: ponto
+                   v: vetor[1..3] de ponto
+                inicio
+                   para i de 1 ate 3 faca
+                      v[i].x <- i * 10
+                   fimpara
+                   leia(p.y)
+                   pausa
+                   escreval(v[3].x, p.y)
+                fimalgoritmo
+                """;
+        StringBuilder output = new StringBuilder();
+        BlockingQueue<ProgramState> states = new LinkedBlockingQueue<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(7))), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }), states::add);
+        // Checkpoints inside the loop, so going back replays field writes on top of them
+        interpreter.setTimeTravel(2, 100);
+        Thread run = Thread.startVirtualThread(() -> interpreter.run(program));
+
+        assertFieldState(states.take(), 16, 10, 20, 30, 7);
+        while (!interpreter.stepBack()) {
+            Thread.sleep(1);
+        }
+        assertFieldState(states.take(), 15, 10, 20, 30, 0);
+        assertTrue(interpreter.runBackToLine(13));
+        assertFieldState(states.take(), 13, 10, 20, 0, 0);
+        assertTrue(interpreter.runBackToLine(13));
+        assertFieldState(states.take(), 13, 10, 0, 0, 0);
+
+        interpreter.continueExecution();
+        run.join();
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 30 7\n", output.toString());
+    }
+
+    @Test
+    void testTimeTravelSharedVetor() throws Exception {
+        String program = """
+                algoritmo "preenche"
+                var
+                   v: vetor[1..3] de inteiro
+                   i: inteiro
+                procedimento preencher(x: vetor[1..3] de inteiro)
+                var
+                   j: inteiro
+                inicio
+                   para j de 1 ate 3 faca
+                      x[j] <- j * 5
+                   fimpara
+                fimprocedimento
+                inicio
+                   i <- 1
+                   preencher(v)
+                   i <- 2
+                   pausa
+                   escreval(v[3])
+                fimalgoritmo
+                """;
+        StringBuilder output = new StringBuilder();
+        BlockingQueue<ProgramState> states = new LinkedBlockingQueue<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }), states::add);
+        // Checkpoints while the procedure runs: the caller's v must not be reused from an earlier one
+        interpreter.setTimeTravel(2, 100);
+        Thread run = Thread.startVirtualThread(() -> interpreter.run(program));
+
+        assertSharedState(states.take(), 17, 5, 10, 15);
+        while (!interpreter.stepBack()) {
+            Thread.sleep(1);
+        }
+        assertSharedState(states.take(), 16, 5, 10, 15);
+        assertTrue(interpreter.runBackToLine(10));
+        ProgramState inProcedure = states.take();
+        assertSharedState(inProcedure, 10, 5, 10, 0);
+        // The parameter and the argument are still one vetor
+        Object[] x = (Object[]) inProcedure.stack().get("preencher#1").get("x");
+        assertSame(inProcedure.stack().get("GLOBAL").get("v"), x);
+        assertTrue(interpreter.runBackToLine(14));
+        assertSharedState(states.take(), 14, 0, 0, 0);
+
+        interpreter.continueExecution();
+        run.join();
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 15\n", output.toString());
+    }
+
+    private static void assertSharedState(ProgramState state, int line, int... elements) {
+        Object[] v = (Object[]) state.stack().get("GLOBAL").get("v");
+        assertEquals(line - 1, state.lineNumber());
+        assertEquals(IntStream.of(elements).boxed().toList(), List.of(v).subList(1, 4));
+    }
+
+    private static void assertFieldState(ProgramState state, int line, int x1, int x2, int x3, int y) {
+        Map<String, Object> globals = state.stack().get("GLOBAL");
+        Object[] v = (Object[]) globals.get("v");
+        assertEquals(line - 1, state.lineNumber());
+        assertEquals(List.of(x1, x2, x3), IntStream.rangeClosed(1, 3).mapToObj(i -> ((UserDefinedValue) v[i]).values().get("x")).toList());
+        assertEquals(y, ((UserDefinedValue) globals.get("p")).values().get("y"));
+    }
+
+    private static void assertTimeState(ProgramState state, int line, int i, int s, int lastElement) {
+        Map<String, Object> globals = state.stack().get("GLOBAL");
+        assertEquals(line - 1, state.lineNumber());
+        assertEquals(i, globals.get("i"));
+        assertEquals(s, globals.get("s"));
+        assertEquals(lastElement, ((Object[]) globals.get("v"))[3]);
+    }
+
+    @Test
+    void testWatchpoints() throws Exception {
+        String program = """
+                algoritmo "vigia"
+                var
+                   i, total: inteiro
+                   v: vetor[1..5] de inteiro
+                inicio
+                   para i de 1 ate 5 faca
+                      v[i] <- i * 30
+                      total <- total + i
+                   fimpara
+                   total <- total
+                   escreval(total, v[5])
+                fimalgoritmo
+                """;
+        StringBuilder output = new StringBuilder();
+        BlockingQueue<ProgramState> states = new LinkedBlockingQueue<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }), states::add);
+        interpreter.addWatchpoint(Watchpoint.onChange("total"));
+        interpreter.addWatchpoint(Watchpoint.when("v", value -> (Integer) value > 100, 5));
+        Thread run = Thread.startVirtualThread(() -> interpreter.run(program));
+
+        // Cells other than v[5] and the write that leaves total unchanged never pause
+        List<String> pauses = new ArrayList<>();
+        for (int pause = 0; pause < 6; pause++) {
+            ProgramState state = states.take();
+            Map<String, Object> globals = state.stack().get("GLOBAL");
+            pauses.add((state.lineNumber() + 1) + ": total=" + globals.get("total") + " v[5]=" + ((Object[]) globals.get("v"))[5]);
+            // The callback runs just before the interpreter starts waiting
+            while (run.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            interpreter.continueExecution();
+        }
+        run.join();
+
+        assertEquals(List.of("8: total=1 v[5]=0", "8: total=3 v[5]=0", "8: total=6 v[5]=0", "8: total=10 v[5]=0",
+                "7: total=10 v[5]=150", "8: total=15 v[5]=150"), pauses);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 15 150\n", output.toString());
+    }
+
+    @Test
+    void testWatchpointsOnRecordFields() throws Exception {
+        String program = """
+                algoritmo "vigia_registro"
+                tipo
+                   conta = registro
+                      saldo: inteiro
+                   fimregistro
+                var
+                   i: inteiro
+                   total: conta
+                   v: vetor[1..3] de conta
+                inicio
+                   total.saldo <- 5
+                   para i de 1 ate 3 faca
+                      v[i].saldo <- i * 10
+                   fimpara
+                   leia(total.saldo)
+                   escreval(total.saldo, v[2].saldo)
+                fimalgoritmo
+                """;
+        StringBuilder output = new StringBuilder();
+        BlockingQueue<ProgramState> states = new LinkedBlockingQueue<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(9))), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }), states::add);
+        interpreter.addWatchpoint(Watchpoint.onChange("total"));
+        interpreter.addWatchpoint(Watchpoint.when("v", value -> (Integer) value > 0, 2));
+        Thread run = Thread.startVirtualThread(() -> interpreter.run(program));
+
+        // Fields of v[1] and v[3] never pause
+        List<String> pauses = new ArrayList<>();
+        for (int pause = 0; pause < 3; pause++) {
+            ProgramState state = states.take();
+            Map<String, Object> globals = state.stack().get("GLOBAL");
+            pauses.add((state.lineNumber() + 1) + ": total.saldo=" + ((UserDefinedValue) globals.get("total")).values().get("saldo")
+                    + " v[2].saldo=" + ((UserDefinedValue) ((Object[]) globals.get("v"))[2]).values().get("saldo"));
+            while (run.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            interpreter.continueExecution();
+        }
+        run.join();
+
+        assertEquals(List.of("11: total.saldo=5 v[2].saldo=0", "13: total.saldo=5 v[2].saldo=20", "15: total.saldo=9 v[2].saldo=20"), pauses);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 9 20\n", output.toString());
+    }
+
+    @Test
+    void testWatchpointsThroughParameters() throws Exception {
+        String program = """
+                algoritmo "vigia_parametro"
+                var
+                   v: vetor[1..5] de inteiro
+                procedimento preencher(x: vetor[1..5] de inteiro)
+                var
+                   i: inteiro
+                inicio
+                   para i de 1 ate 5 faca
+                      x[i] <- i * 30
+                   fimpara
+                fimprocedimento
+                inicio
+                   preencher(v)
+                   escreval(v[5])
+                fimalgoritmo
+                """;
+        StringBuilder output = new StringBuilder();
+        BlockingQueue<ProgramState> states = new LinkedBlockingQueue<>();
+        Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.empty()), event -> {
+            if (event instanceof OutputEvent.Text(String text)) {
+                output.append(text);
+            }
+        }), states::add);
+        // Typed in another case than the declaration, and written only through the parameter x
+        interpreter.addWatchpoint(Watchpoint.onChange("V", 5));
+        Thread run = Thread.startVirtualThread(() -> interpreter.run(program));
+
+        ProgramState state = states.take();
+        assertEquals(9, state.lineNumber() + 1);
+        assertEquals(150, ((Object[]) state.stack().get("GLOBAL").get("v"))[5]);
+        assertEquals(5, state.stack().get("preencher#1").get("i"));
+        while (run.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        // A second pause would leave the run waiting forever
+        interpreter.continueExecution();
+        run.join();
+
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+        assertEquals(" 150\n", output.toString());
+    }
+
+    @Test
+    void testRecordAndReplay() throws Exception {
+        String program = """
+                algoritmo "replay"
+                var
+                   n, i: inteiro
+                   nome: caracter
+                inicio
+                   leia(n, nome)
+                   escreval(nome, n + randi(1000))
+                   aleatorio 1, 100
+                   leia(i)
+                   aleatorio off
+                   escreval(i + rand * 0)
+                   escreval(randi(1000))
+                fimalgoritmo
+                """;
+        List<OutputEvent> recordedOutput = new ArrayList<>();
+        Interpreter recorder = new Interpreter(IO.synchronous(InputSource.ofLines(List.of("7", "ana")), recordedOutput::add));
+        recorder.setRecording(true);
+        recorder.run(program);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, recorder.state());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.recording().write(bytes);
+        RunRecording recording = RunRecording.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(recorder.recording(), recording);
+        assertEquals(List.of(7, 11, 12), recording.checkpoints().stream().map(RunRecording.Entry.Checkpoint::line).toList());
+
+        // Replaying never asks the IO for input and draws the same random numbers
+        List<OutputEvent> replayedOutput = new ArrayList<>();
+        Interpreter replayer = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new AssertionError()), replayedOutput::add));
+        replayer.setReplay(recording, 0);
+        replayer.run(program);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, replayer.state());
+        assertEquals(recordedOutput, replayedOutput);
+
+        // Skipping ahead delivers everything up to the checkpoint as a single event
+        List<OutputEvent> skippedOutput = new ArrayList<>();
+        replayer = new Interpreter(new IO(_ -> CompletableFuture.failedFuture(new AssertionError()), skippedOutput::add));
+        replayer.setReplay(recording, 2);
+        replayer.run(program);
+        assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, replayer.state());
+        String everything = recordedOutput.stream().map(event -> ((OutputEvent.Text) event).text()).collect(Collectors.joining());
+        String untilCheckpoint = everything.substring(0, (int) recording.checkpoints().get(1).outputCharacters());
+        assertEquals(new OutputEvent.Text(untilCheckpoint), skippedOutput.getFirst());
+        assertEquals(everything, skippedOutput.stream().map(event -> ((OutputEvent.Text) event).text()).collect(Collectors.joining()));
+
+        replayer.setReplay(recording, 0);
+        replayer.run(program.replace("n + randi(1000)", "n + 1 + randi(1000)"));
+        switch (replayer.state()) {
+            case InterpreterState.CompletedExceptionally(Throwable e) -> assertInstanceOf(ReplayDivergedException.class, e);
+            default -> fail(replayer.state().toString());
+        }
+    }
+
+    @Test
+    void testFlightRecorderEvents() throws Exception {
+        Path recordingFile = Files.createTempFile("jvisualg", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("dev.thihup.jvisualg.ProgramRun");
+            recording.enable("dev.thihup.jvisualg.SubprogramCall").withThreshold(Duration.ZERO);
+            recording.enable("dev.thihup.jvisualg.InputWait");
+            recording.enable("dev.thihup.jvisualg.OutputFlush");
+            recording.start();
+
+            Interpreter interpreter = new Interpreter(new IO(_ -> CompletableFuture.completedFuture(Optional.of(new InputValue.InteiroValue(4))), _ -> {
+            }));
+            interpreter.run("""
+                    algoritmo "eventos"
+                    var
+                       n: inteiro
+                    funcao dobro(x: inteiro): inteiro
+                    inicio
+                       retorne x * 2
+                    fimfuncao
+                    inicio
+                       leia(n)
+                       escreval(dobro(n))
+                    fimalgoritmo
+                    """);
+            assertEquals(InterpreterState.CompletedSuccessfully.INSTANCE, interpreter.state());
+
+            recording.stop();
+            recording.dump(recordingFile);
+            Map<String, RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+                    .filter(event -> event.getString("programName").equals("eventos"))
+                    .collect(Collectors.toMap(event -> event.getEventType().getName(), event -> event, (first, _) -> first));
+
+            // Parse and type check events are enabled by default
+            assertEquals(6, events.size(), events.keySet()::toString);
+            assertEquals(11, events.get("dev.thihup.jvisualg.Parse").getInt("sourceLines"));
+            assertEquals(0, events.get("dev.thihup.jvisualg.TypeCheck").getInt("errors"));
+            assertEquals(9, events.get("dev.thihup.jvisualg.InputWait").getInt("line"));
+            assertEquals("n", events.get("dev.thihup.jvisualg.InputWait").getString("variable"));
+            assertEquals(10, events.get("dev.thihup.jvisualg.SubprogramCall").getInt("line"));
+            assertEquals("dobro", events.get("dev.thihup.jvisualg.SubprogramCall").getString("subprogram"));
+            assertEquals(10, events.get("dev.thihup.jvisualg.OutputFlush").getInt("line"));
+            // " 8" plus the newline: numbers are written with a leading space
+            assertEquals(3, events.get("dev.thihup.jvisualg.OutputFlush").getLong("characters"));
+            assertEquals("CompletedSuccessfully", events.get("dev.thihup.jvisualg.ProgramRun").getString("outcome"));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
     @ParameterizedTest
     @MethodSource({"examplesV25", "examplesV30", "examplesCustom"})
     void testExamples(Path path) throws Throwable {
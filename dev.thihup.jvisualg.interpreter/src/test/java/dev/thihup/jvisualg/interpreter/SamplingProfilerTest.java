@@ -0,0 +1,50 @@
+package dev.thihup.jvisualg.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Drives the shadow stack through the listener calls and samples at chosen points, without the timer thread
+class SamplingProfilerTest {
+
+    @Test
+    void testSampledStacks() {
+        SamplingProfiler profiler = new SamplingProfiler(Duration.ofMillis(1), "amostra");
+        profiler.statementEnter(9);
+        profiler.sample();
+        profiler.statementEnter(10);
+        profiler.subprogramEnter("quadrado", 10);
+        profiler.statementEnter(6);
+        profiler.sample();
+        profiler.sample();
+        profiler.subprogramExit("quadrado");
+        profiler.statementEnter(11);
+        profiler.sample();
+
+        SampledProfile profile = profiler.profile();
+        assertEquals(Map.of("amostra:9", 1L, "amostra:10;quadrado:6", 2L, "amostra:11", 1L), profile.stacks());
+        assertEquals(4, profile.samples());
+        assertTrue(profile.folded().lines().anyMatch("amostra:10;quadrado:6 2"::equals), profile::folded);
+    }
+
+    @Test
+    void testDeepRecursion() {
+        SamplingProfiler profiler = new SamplingProfiler(Duration.ofMillis(1), "");
+        for (int i = 0; i < 100; i++) {
+            profiler.subprogramEnter("f", i);
+        }
+        profiler.sample();
+        for (int i = 0; i < 100; i++) {
+            profiler.subprogramExit("f");
+        }
+        profiler.sample();
+
+        SampledProfile profile = profiler.profile();
+        assertEquals(2, profile.samples());
+        assertTrue(profile.stacks().containsKey("algoritmo:0"), profile::folded);
+        assertTrue(profile.stacks().keySet().stream().anyMatch(stack -> stack.split(";").length == 101), profile::folded);
+    }
+}
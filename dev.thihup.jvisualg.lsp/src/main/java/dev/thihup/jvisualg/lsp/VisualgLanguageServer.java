@@ -91,14 +91,7 @@ public class VisualgLanguageServer implements LanguageServer, LanguageClientAwar
                 return;
             }
 
-            ASTResult astResult = VisualgParser.parse(content);
-
-            List<Error> errors = astResult.errors();
-
-            astResult.node()
-                    .map(TypeChecker::semanticAnalysis)
-                    .map(TypeCheckerResult::errors)
-                    .ifPresent(errors::addAll);
+            List<Error> errors = ParseCache.shared().get(content).errors();
 
             List<Diagnostic> list = errors.stream()
                     .map(VisualgLanguageServer::toDiagnostic)
@@ -169,7 +162,7 @@ public class VisualgLanguageServer implements LanguageServer, LanguageClientAwar
     @Override
     public CompletableFuture<List<? extends DocumentHighlight>> documentHighlight(DocumentHighlightParams params) {
         return CompletableFuture.supplyAsync(() -> {
-            ASTResult astResult = VisualgParser.parse(documentContent.get(params.getTextDocument().getUri()));
+            ASTResult astResult = ParseCache.shared().parse(documentContent.get(params.getTextDocument().getUri()));
 
             Node node = astResult.node().orElseThrow();
 